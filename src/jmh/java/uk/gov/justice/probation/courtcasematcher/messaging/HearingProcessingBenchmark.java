@@ -0,0 +1,117 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearing;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.mapper.HearingMapper;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.courtcaseservice.CCSExtendedHearing;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per-hearing work done after a Common Platform message is parsed, for hearings with a growing number
+ * of defendants and offences. Hearings are built from the defendants and offences in the hearing.json test payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HearingProcessingBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int defendantCount;
+
+    @Param({"1", "5", "20"})
+    public int offenceCount;
+
+    private CPHearing cpHearing;
+    private Hearing incoming;
+    private Hearing existing;
+
+    @Setup
+    public void setUp() throws IOException {
+        final var mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.registerModule(new JavaTimeModule());
+
+        final JsonNode template;
+        try (var inputStream = Objects.requireNonNull(getClass().getResourceAsStream("/messages/common-platform/hearing.json"))) {
+            template = mapper.readTree(inputStream);
+        }
+        final var event = mapper.treeToValue(withCounts(mapper, template), CPHearingEvent.class);
+
+        cpHearing = event.getHearing();
+        incoming = withHearingId(event);
+        // A second copy rather than the same instance, so comparisons can't short-circuit on identity
+        existing = withHearingId(mapper.treeToValue(withCounts(mapper, template), CPHearingEvent.class));
+    }
+
+    @Benchmark
+    public List<Hearing> cpHearingAsDomain() {
+        return cpHearing.asDomain();
+    }
+
+    @Benchmark
+    public boolean hasCourtHearingChanged() {
+        return IncomingHearingComparator.hasCourtHearingChanged(incoming, existing);
+    }
+
+    @Benchmark
+    public Hearing merge() {
+        return HearingMapper.merge(incoming, existing);
+    }
+
+    @Benchmark
+    public CCSExtendedHearing ccsExtendedHearingOf() {
+        return CCSExtendedHearing.of(incoming);
+    }
+
+    private JsonNode withCounts(ObjectMapper mapper, JsonNode template) {
+        final var hearing = (ObjectNode) template.get("hearing").deepCopy();
+        final var prosecutionCase = (ObjectNode) hearing.get("prosecutionCases").get(0).deepCopy();
+        final var defendantTemplate = prosecutionCase.get("defendants").get(0);
+        final var offenceTemplate = defendantTemplate.get("offences").get(0);
+
+        final var defendants = mapper.createArrayNode();
+        for (int d = 0; d < defendantCount; d++) {
+            final var defendant = (ObjectNode) defendantTemplate.deepCopy();
+            defendant.put("id", "defendant-" + d);
+            final var offences = defendant.putArray("offences");
+            for (int o = 0; o < offenceCount; o++) {
+                final var offence = (ObjectNode) offenceTemplate.deepCopy();
+                offence.put("id", "defendant-" + d + "-offence-" + o);
+                offence.put("listingNumber", o + 1);
+                offences.add(offence);
+            }
+            defendants.add(defendant);
+        }
+        prosecutionCase.set("defendants", defendants);
+        hearing.putArray("prosecutionCases").add(prosecutionCase);
+        return mapper.createObjectNode().set("hearing", hearing);
+    }
+
+    private static Hearing withHearingId(CPHearingEvent event) {
+        return event.asDomain().getFirst().withHearingId(event.getHearing().getId());
+    }
+}
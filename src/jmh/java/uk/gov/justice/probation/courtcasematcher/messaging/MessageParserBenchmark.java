@@ -0,0 +1,91 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraHearing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving the message type on every parse, as MessageParser used to, with its cached per-type readers,
+ * with and without the Blackbird module. SNS envelopes aren't parsed by MessageParser any more, they are streamed by
+ * SnsEnvelopeReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageParserBenchmark {
+
+    @Param({"libra", "common-platform"})
+    public String messageType;
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    private ObjectMapper mapper;
+    private Validator validator;
+    private MessageParser<Object> parser;
+    private Class<Object> type;
+    private String message;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.registerModule(new JavaTimeModule());
+        if (blackbird) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        switch (messageType) {
+            case "libra" -> setUp(LibraHearing.class, "libra/case.json");
+            case "common-platform" -> setUp(CPHearingEvent.class, "common-platform/hearing-multiple-cases.json");
+            default -> throw new IllegalArgumentException(messageType);
+        }
+        parser = new MessageParser<>(mapper, validator, type);
+    }
+
+    @Benchmark
+    public Object constructTypePerMessage() throws JsonProcessingException {
+        final Object parsed = mapper.readValue(message, mapper.getTypeFactory().constructType(type));
+        validator.validate(parsed);
+        return parsed;
+    }
+
+    @Benchmark
+    public Object cachedReader() throws JsonProcessingException {
+        return parser.parseMessage(message, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setUp(Class<?> messageClass, String resource) throws IOException {
+        type = (Class<Object>) messageClass;
+        try (var inputStream = Objects.requireNonNull(getClass().getResourceAsStream("/messages/" + resource))) {
+            message = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
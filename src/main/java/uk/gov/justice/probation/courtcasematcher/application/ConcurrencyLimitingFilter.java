@@ -0,0 +1,113 @@
+package uk.gov.justice.probation.courtcasematcher.application;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests a WebClient has in flight to one downstream service. Requests over the limit wait,
+ * without holding a thread, until an earlier request's response body has been read or released, which is when its
+ * pooled connection becomes free again.
+ */
+public class ConcurrencyLimitingFilter implements ExchangeFilterFunction {
+
+    private final AtomicInteger permits;
+    private final Queue<Sinks.One<Boolean>> waiting = new ConcurrentLinkedQueue<>();
+
+    public ConcurrencyLimitingFilter(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1 but was " + maxConcurrentRequests);
+        }
+        this.permits = new AtomicInteger(maxConcurrentRequests);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return acquire().flatMap(permit -> {
+            final var released = new AtomicBoolean();
+            final var responded = new AtomicBoolean();
+            final Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    releasePermit();
+                }
+            };
+            // The connection stays in use until the body has been read or released, so the permit is held until then
+            return next.exchange(request)
+                    .map(response -> {
+                        responded.set(true);
+                        return response.mutate()
+                                .body(body -> body.doFinally(signalType -> release.run()))
+                                .build();
+                    })
+                    .doOnError(e -> release.run())
+                    .doOnCancel(() -> {
+                        if (!responded.get()) {
+                            release.run();
+                        }
+                    })
+                    .switchIfEmpty(Mono.fromRunnable(release));
+        });
+    }
+
+    int getAvailablePermits() {
+        return permits.get();
+    }
+
+    int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private Mono<Boolean> acquire() {
+        return Mono.defer(() -> {
+            if (tryAcquire()) {
+                return Mono.just(Boolean.TRUE);
+            }
+            final var waiter = Sinks.<Boolean>one();
+            waiting.add(waiter);
+            // A permit may have been released between the failed attempt and joining the queue
+            grantToWaiting();
+            return waiter.asMono()
+                    .doOnCancel(() -> {
+                        // If the waiter has already been taken from the queue it was granted a permit, so hand it back
+                        if (!waiting.remove(waiter)) {
+                            releasePermit();
+                        }
+                    });
+        });
+    }
+
+    private void releasePermit() {
+        permits.incrementAndGet();
+        grantToWaiting();
+    }
+
+    private void grantToWaiting() {
+        while (!waiting.isEmpty() && tryAcquire()) {
+            final var waiter = waiting.poll();
+            if (waiter == null) {
+                permits.incrementAndGet();
+                return;
+            }
+            waiter.tryEmitValue(Boolean.TRUE);
+        }
+    }
+
+    private boolean tryAcquire() {
+        int available;
+        do {
+            available = permits.get();
+            if (available <= 0) {
+                return false;
+            }
+        } while (!permits.compareAndSet(available, available - 1));
+        return true;
+    }
+}
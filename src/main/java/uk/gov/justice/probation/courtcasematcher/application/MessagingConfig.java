@@ -3,23 +3,41 @@ package uk.gov.justice.probation.courtcasematcher.application;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import uk.gov.justice.probation.courtcasematcher.messaging.MessageParser;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraHearing;
-import uk.gov.justice.probation.courtcasematcher.model.SnsMessageContainer;
 
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
 
 @Configuration
 public class MessagingConfig {
 
+    // Blackbird generates accessors with LambdaMetafactory instead of using reflection to set bean properties
+    @Value("${messaging.jackson.blackbird.enabled:false}")
+    private boolean blackbirdEnabled;
+
+    // Hibernate Validator's fail fast mode stops at the first violation instead of walking the rest of the message
+    private static final String FAIL_FAST_PROPERTY = "hibernate.validator.fail_fast";
+
+    @Value("${messaging.validation.fail-fast:false}")
+    private boolean validationFailFast;
+
     private void configureMapper(ObjectMapper objectMapper) {
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         objectMapper.registerModule(new JavaTimeModule());
+        if (blackbirdEnabled) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
     }
 
     // Without this, Spring uses the XmlMapper bean as the ObjectMapper for the whole app and we get actuator response as XML
@@ -33,22 +51,36 @@ public class MessagingConfig {
 
     @Bean
     public MessageParser<LibraHearing> libraJsonParser() {
-        return new MessageParser<>(objectMapper(), validator());
+        return new MessageParser<>(objectMapper(), validator(), LibraHearing.class);
     }
 
 
     @Bean
     public MessageParser<CPHearingEvent> commonPlatformJsonParser() {
-        return new MessageParser<>(objectMapper(), validator());
+        return new MessageParser<>(objectMapper(), validator(), CPHearingEvent.class);
     }
 
-    @Bean(name = "snsMessageWrapperJsonParser")
-    public MessageParser<SnsMessageContainer> snsMessageWrapperJsonParser() {
-        return new MessageParser<>(objectMapper(), validator());
+    /**
+     * Runs the blocking parts of message handling, parsing and S3 reads, off the listener threads. With virtual threads
+     * enabled each message gets its own virtual thread, so the number in flight is bounded only by the listener's
+     * maxConcurrentMessages. The scheduler is owned by this bean, rather than being the shared boundedElastic(), so it
+     * can be disposed with the context.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler messageExtractionScheduler(@Value("${messaging.virtual-threads.enabled:false}") boolean virtualThreadsEnabled) {
+        if (virtualThreadsEnabled) {
+            return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "message-extraction");
+        }
+        return Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                "message-extraction");
     }
 
     @Bean
     public Validator validator() {
-        return Validation.buildDefaultValidatorFactory().getValidator();
+        return Validation.byDefaultProvider()
+            .configure()
+            .addProperty(FAIL_FAST_PROPERTY, String.valueOf(validationFailFast))
+            .buildValidatorFactory()
+            .getValidator();
     }
 }
@@ -0,0 +1,49 @@
+package uk.gov.justice.probation.courtcasematcher.application;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.probation.courtcasematcher.service.TelemetryEventType;
+
+import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fraction of each telemetry event type that is sent, keyed by the event type in kebab case, e.g.
+ * hearing-message-received. Event types without a rate are always sent.
+ */
+@Component
+@Slf4j
+@ConfigurationProperties(prefix = "telemetry")
+public class TelemetrySampling {
+
+    @NonNull
+    private final Map<String, Double> sampleRates;
+
+    public TelemetrySampling() {
+        this.sampleRates = new HashMap<>();
+    }
+
+    public void setSampleRates(final Map<String, Double> sampleRates) {
+        this.sampleRates.putAll(sampleRates);
+    }
+
+    public void setSampleRate(final TelemetryEventType eventType, final double sampleRate) {
+        sampleRates.put(key(eventType), sampleRate);
+    }
+
+    @PostConstruct
+    public void init() {
+        log.info("Telemetry sample rates at startup:" + sampleRates.entrySet());
+    }
+
+    public double getSampleRate(@NonNull TelemetryEventType eventType) {
+        return sampleRates.getOrDefault(key(eventType), 1.0);
+    }
+
+    private static String key(TelemetryEventType eventType) {
+        return eventType.name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,58 @@
+package uk.gov.justice.probation.courtcasematcher.application;
+
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pool settings for each WebClient, keyed by client name, e.g. court-case-service. Clients without settings
+ * use the defaults in {@link PoolSettings}, as do any settings a client leaves out.
+ */
+@Component
+@Slf4j
+@ConfigurationProperties(prefix = "web.client.pool")
+public class WebClientPools {
+
+    @NonNull
+    private final Map<String, PoolSettings> clients;
+
+    public WebClientPools() {
+        this.clients = new HashMap<>();
+    }
+
+    public void setClients(final Map<String, PoolSettings> clients) {
+        this.clients.putAll(clients);
+    }
+
+    @PostConstruct
+    public void init() {
+        log.info("WebClient connection pools at startup:" + clients.entrySet());
+    }
+
+    public PoolSettings getPoolSettings(@NonNull String clientName) {
+        return clients.getOrDefault(clientName, new PoolSettings());
+    }
+
+    @Data
+    public static class PoolSettings {
+        private int maxConnections = 50;
+        // Requests waiting for a connection, -1 for no limit
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        // No limit when not set
+        private Duration maxLifeTime;
+        // How often idle and expired connections are closed in the background, zero to only close them on acquire
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private boolean keepAlive = true;
+        // Negotiated with the server, falling back to HTTP/1.1 if it doesn't support HTTP/2
+        private boolean http2 = false;
+    }
+}
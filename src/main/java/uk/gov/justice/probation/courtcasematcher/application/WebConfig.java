@@ -3,6 +3,8 @@ package uk.gov.justice.probation.courtcasematcher.application;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +14,9 @@ import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.util.concurrent.TimeUnit;
 
@@ -40,63 +44,127 @@ public class WebConfig {
     @Value("${web.client.write-timeout-ms}")
     private int writeTimeoutMs;
 
+    @Value("${web.client.max-concurrent-requests.court-case-service:50}")
+    private int courtCaseServiceMaxConcurrentRequests;
+
+    @Value("${web.client.max-concurrent-requests.offender-search:50}")
+    private int offenderSearchMaxConcurrentRequests;
+
+    @Value("${web.client.max-concurrent-requests.person-record-service:50}")
+    private int personRecordServiceMaxConcurrentRequests;
+
+    @Autowired
+    private WebClientPools webClientPools;
+
+    // Each client has its own pool, disposed when the context closes so its connections and background eviction stop
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider courtCaseServiceConnectionProvider() {
+        return connectionProvider("court-case-service");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider offenderSearchConnectionProvider() {
+        return connectionProvider("offender-search");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider oauthConnectionProvider() {
+        return connectionProvider("oauth");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider personRecordServiceConnectionProvider() {
+        return connectionProvider("person-record-service");
+    }
+
     @Bean
-    public WebClient courtCaseServiceWebClient(OAuth2AuthorizedClientManager authorizedClientManager) {
+    public WebClient courtCaseServiceWebClient(OAuth2AuthorizedClientManager authorizedClientManager,
+                                               @Qualifier("courtCaseServiceConnectionProvider") ConnectionProvider connectionProvider) {
 
         ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2Client =
             new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
-        return defaultWebClientBuilder()
+        return defaultWebClientBuilder(httpClient("court-case-service", connectionProvider))
             .baseUrl(this.courtCaseServiceBaseUrl)
             .filter(oauth2Client)
+            .filter(new ConcurrencyLimitingFilter(courtCaseServiceMaxConcurrentRequests))
             .build();
     }
 
     @Bean
-    public WebClient offenderSearchWebClient(OAuth2AuthorizedClientManager authorizedClientManager)
+    public WebClient offenderSearchWebClient(OAuth2AuthorizedClientManager authorizedClientManager,
+                                             @Qualifier("offenderSearchConnectionProvider") ConnectionProvider connectionProvider)
     {
         ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2Client =
                 new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
-        return defaultWebClientBuilder()
+        return defaultWebClientBuilder(httpClient("offender-search", connectionProvider))
                 .baseUrl(this.offenderSearchBaseUrl)
                 .filter(oauth2Client)
+                .filter(new ConcurrencyLimitingFilter(offenderSearchMaxConcurrentRequests))
                 .build();
     }
 
     @Bean
-    public WebClient oauthWebClient(OAuth2AuthorizedClientManager authorizedClientManager)
+    public WebClient oauthWebClient(OAuth2AuthorizedClientManager authorizedClientManager,
+                                    @Qualifier("oauthConnectionProvider") ConnectionProvider connectionProvider)
     {
         ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2Client =
                 new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
-        return defaultWebClientBuilder()
+        return defaultWebClientBuilder(httpClient("oauth", connectionProvider))
                 .baseUrl(this.nomisOauthBaseUrl)
                 .filter(oauth2Client)
                 .build();
     }
 
     @Bean
-    public WebClient personRecordServiceWebClient(OAuth2AuthorizedClientManager authorizedClientManager)
+    public WebClient personRecordServiceWebClient(OAuth2AuthorizedClientManager authorizedClientManager,
+                                                  @Qualifier("personRecordServiceConnectionProvider") ConnectionProvider connectionProvider)
     {
         ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2Client =
                 new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
-        return defaultWebClientBuilder()
+        return defaultWebClientBuilder(httpClient("person-record-service", connectionProvider).followRedirect(true))
                 .baseUrl(this.personRecordServiceBaseUrl)
-                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().followRedirect(true)))
                 .filter(oauth2Client)
+                .filter(new ConcurrencyLimitingFilter(personRecordServiceMaxConcurrentRequests))
                 .build();
     }
 
-    private WebClient.Builder defaultWebClientBuilder() {
-        HttpClient httpClient = HttpClient.create()
-            .tcpConfiguration(client ->
-                client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
-                    .doOnConnected(conn -> conn
-                        .addHandlerLast(new ReadTimeoutHandler(readTimeoutMs, TimeUnit.MILLISECONDS))
-                        .addHandlerLast(new WriteTimeoutHandler(writeTimeoutMs, TimeUnit.MILLISECONDS))));
-
+    private WebClient.Builder defaultWebClientBuilder(HttpClient httpClient) {
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .codecs(configurer -> configurer.defaultCodecs()
                     .maxInMemorySize(10 * 1024 * 1024));
     }
+
+    private ConnectionProvider connectionProvider(String clientName) {
+        final var pool = webClientPools.getPoolSettings(clientName);
+
+        // Active, idle and pending connections are exported as reactor.netty.connection.provider metrics tagged with
+        // the client name
+        final var connectionProvider = ConnectionProvider.builder(clientName)
+            .maxConnections(pool.getMaxConnections())
+            .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .evictInBackground(pool.getEvictInBackground())
+            .metrics(true);
+        if (pool.getMaxLifeTime() != null) {
+            connectionProvider.maxLifeTime(pool.getMaxLifeTime());
+        }
+        return connectionProvider.build();
+    }
+
+    private HttpClient httpClient(String clientName, ConnectionProvider connectionProvider) {
+        final var pool = webClientPools.getPoolSettings(clientName);
+
+        return HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .keepAlive(pool.isKeepAlive())
+            .protocol(pool.isHttp2()
+                ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2, HttpProtocol.H2C}
+                : new HttpProtocol[]{HttpProtocol.HTTP11})
+            .doOnConnected(conn -> conn
+                .addHandlerLast(new ReadTimeoutHandler(readTimeoutMs, TimeUnit.MILLISECONDS))
+                .addHandlerLast(new WriteTimeoutHandler(writeTimeoutMs, TimeUnit.MILLISECONDS)));
+    }
 }
@@ -0,0 +1,93 @@
+package uk.gov.justice.probation.courtcasematcher.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the hearings to replay from an uploaded CSV of hearing ID, S3 path and received time. Lines are read on their
+ * own thread and handed to the replay through a bounded queue, so the replay starts with the first line and only a
+ * queue's worth of the file is held in memory. Lines that can't be read are skipped and recorded here rather than
+ * failing the replay.
+ */
+@Slf4j
+public class Hearing404CsvReader {
+
+    static final DateTimeFormatter RECEIVED_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    // Keeps the error list small when a whole file is in the wrong format
+    static final int MAX_RECORDED_MALFORMED_LINES = 1000;
+
+    private final List<String> malformedLines = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger malformedLineCount = new AtomicInteger();
+
+    /**
+     * Reads the file once the returned Flux is subscribed to, deleting it when reading finishes or is cancelled.
+     */
+    public Flux<Hearing404> read(Path csvFile, int queueSize) {
+        final var lineNumber = new AtomicInteger();
+        return Flux.using(() -> Files.newBufferedReader(csvFile, StandardCharsets.UTF_8),
+                reader -> Flux.fromStream(reader.lines()),
+                reader -> close(reader, csvFile))
+            .subscribeOn(Schedulers.boundedElastic())
+            .publishOn(Schedulers.boundedElastic(), queueSize)
+            .<Hearing404>handle((line, sink) -> parse(line, lineNumber.incrementAndGet()).ifPresent(sink::next));
+    }
+
+    public List<String> getMalformedLines() {
+        synchronized (malformedLines) {
+            return List.copyOf(malformedLines);
+        }
+    }
+
+    public int getMalformedLineCount() {
+        return malformedLineCount.get();
+    }
+
+    private Optional<Hearing404> parse(String line, int lineNumber) {
+        if (line.isBlank()) {
+            return Optional.empty();
+        }
+        final String[] hearingDetails = line.split(",");
+        if (hearingDetails.length < 3) {
+            return malformed(lineNumber, "expected hearing id, s3 path and received time but got " + hearingDetails.length + " fields");
+        }
+        try {
+            final LocalDateTime received = LocalDateTime.parse(hearingDetails[2].trim(), RECEIVED_FORMAT); // THIS IS UTC and therefore 1 hour behind the time in the S3 path
+            return Optional.of(new Hearing404(hearingDetails[0], hearingDetails[1], received));
+        } catch (DateTimeParseException e) {
+            return malformed(lineNumber, "received time " + e.getParsedString() + " is not in the format dd/MM/yyyy HH:mm:ss");
+        }
+    }
+
+    private Optional<Hearing404> malformed(int lineNumber, String reason) {
+        final var error = "Line " + lineNumber + ": " + reason;
+        log.warn("Skipping malformed 404 hearing. {}", error);
+        if (malformedLineCount.incrementAndGet() <= MAX_RECORDED_MALFORMED_LINES) {
+            malformedLines.add(error);
+        }
+        return Optional.empty();
+    }
+
+    private static void close(BufferedReader reader, Path csvFile) {
+        try {
+            reader.close();
+            Files.deleteIfExists(csvFile);
+        } catch (IOException e) {
+            log.warn("Failed to clean up 404 hearings upload {}", csvFile, e);
+        }
+    }
+}
@@ -1,49 +1,149 @@
 package uk.gov.justice.probation.courtcasematcher.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
-import uk.gov.justice.probation.courtcasematcher.service.ReplayHearingsService;
+import org.springframework.web.server.ResponseStatusException;
+import uk.gov.justice.probation.courtcasematcher.service.ReplayJob;
+import uk.gov.justice.probation.courtcasematcher.service.ReplayJobRegistry;
+import uk.gov.justice.probation.courtcasematcher.service.ReplayJobSummary;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 @RestController
 @Slf4j
 public class Replay404HearingsController {
 
-    private final ReplayHearingsService replayHearingsService;
+    private static final String JOBS_PATH = "/replay404Hearings/jobs";
 
-    Replay404HearingsController(ReplayHearingsService replayHearingsService){
-        this.replayHearingsService = replayHearingsService;
+    private final ReplayJobRegistry replayJobRegistry;
+    private final int queueSize;
+
+    Replay404HearingsController(ReplayJobRegistry replayJobRegistry,
+                                @Value("${replay404.ingest-queue-size:256}") int queueSize){
+        this.replayJobRegistry = replayJobRegistry;
+        this.queueSize = queueSize;
     }
 
     @PostMapping(path="/replay404Hearings", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public String replay404Hearings(@RequestBody MultipartFile file) throws IOException {
-
-        InputStream inputStream = file.getInputStream();
-        BufferedReader br = new BufferedReader(new InputStreamReader(inputStream));
-        List<Hearing404> hearing404s = br.lines().filter(it -> !it.isEmpty()).map(hearing -> {
-                String[] hearingDetails = hearing.split(",");
-                String id = hearingDetails[0];
-                String s3Path = hearingDetails[1];
-                LocalDateTime received = LocalDateTime.from(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss").parse(hearingDetails[2])); // THIS IS UTC and therefore 1 hour behind the time in the S3 path
-                return new Hearing404(id, s3Path, received);
-        }).collect(Collectors.toList());
-
-        log.info("Starting to replay 404 hearings");
-        CompletableFuture.supplyAsync(replayHearingsService.replay(hearing404s));
-
-        return "OK";
+    public ResponseEntity<String> replay404Hearings(@RequestBody MultipartFile file) throws IOException {
+
+        // The upload is deleted once this request completes, so it is copied somewhere the replay can read it from
+        final var csvFile = Files.createTempFile("replay404-", ".csv");
+        final CopiedUpload upload;
+        try {
+            upload = copy(file, csvFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(csvFile);
+            throw e;
+        }
+        final var csvReader = new Hearing404CsvReader();
+
+        // The replay is named after the file's content, so uploading the same file again resumes it from its checkpoint
+        // if it didn't finish, while a different file never shares its checkpoint
+        final var job = replayJobRegistry.start(upload.sha256(), csvReader.read(csvFile, queueSize), upload.lineCount(),
+                csvReader::getMalformedLines, csvReader::getMalformedLineCount)
+            .orElse(null);
+        if (job == null) {
+            Files.deleteIfExists(csvFile);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                String.format("A replay of %s is already in progress", file.getOriginalFilename()));
+        }
+        log.info("Starting to replay 404 hearings from {} as job {}", file.getOriginalFilename(), job.getId());
+
+        return ResponseEntity.ok()
+            .location(URI.create(JOBS_PATH + "/" + job.getId()))
+            .body("OK");
+    }
+
+    @GetMapping(path = JOBS_PATH)
+    public List<ReplayJobSummary> getJobs() {
+        return replayJobRegistry.getJobs().stream()
+            .map(ReplayJob::summary)
+            .toList();
+    }
+
+    @GetMapping(path = JOBS_PATH + "/{id}")
+    public ReplayJobSummary getJob(@PathVariable String id) {
+        return findJob(id).summary();
+    }
+
+    @PostMapping(path = JOBS_PATH + "/{id}/pause")
+    public ReplayJobSummary pauseJob(@PathVariable String id) {
+        return control(id, ReplayJob::pause, "running");
+    }
+
+    @PostMapping(path = JOBS_PATH + "/{id}/resume")
+    public ReplayJobSummary resumeJob(@PathVariable String id) {
+        return control(id, ReplayJob::resume, "paused");
+    }
+
+    @PostMapping(path = JOBS_PATH + "/{id}/cancel")
+    public ReplayJobSummary cancelJob(@PathVariable String id) {
+        return control(id, ReplayJob::cancel, "running or paused");
+    }
+
+    private ReplayJobSummary control(String id, Predicate<ReplayJob> action, String expectedState) {
+        final var job = findJob(id);
+        if (!action.test(job)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                String.format("Replay job %s is %s, not %s", id, job.getState(), expectedState));
+        }
+        return job.summary();
+    }
+
+    private ReplayJob findJob(String id) {
+        return replayJobRegistry.getJob(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("Replay job %s not found", id)));
+    }
+
+    private static CopiedUpload copy(MultipartFile file, Path destination) throws IOException {
+        long lineCount = 0;
+        var endsWithNewLine = true;
+        final var digest = sha256();
+        final var buffer = new byte[64 * 1024];
+        try (InputStream inputStream = file.getInputStream(); OutputStream outputStream = Files.newOutputStream(destination)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lineCount++;
+                    }
+                }
+                endsWithNewLine = buffer[read - 1] == '\n';
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return new CopiedUpload(endsWithNewLine ? lineCount : lineCount + 1, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CopiedUpload(long lineCount, String sha256) {
     }
 }
@@ -0,0 +1,220 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPCourtCentre;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearing;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingDay;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingType;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPJurisdictionType;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPProsecutionCase;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses a Common Platform hearing event from a stream, converting each prosecution case to a {@link Hearing} as soon
+ * as it has been read. Only one prosecution case is held as a Common Platform object at a time, provided the required
+ * hearing fields come before the prosecution cases as they do in Common Platform's output. If they don't, the
+ * prosecution cases are held until the end of the hearing. The optional hearing type is applied to any hearings already
+ * converted when it comes after the prosecution cases. The hearing fields are validated once and each prosecution case is validated as
+ * it is read, so an invalid case is rejected without reading the rest of the payload.
+ */
+@Component
+@Slf4j
+@AllArgsConstructor(onConstructor_ = @Autowired)
+public class CommonPlatformHearingReader {
+
+    private static final Set<String> REQUIRED_HEARING_FIELDS = Set.of("id", "courtCentre", "hearingDays", "jurisdictionType");
+    private static final String PROSECUTION_CASES_PATH = "hearing.prosecutionCases";
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public List<Hearing> read(InputStream inputStream) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var fieldName = parser.currentName();
+                parser.nextToken();
+                if ("hearing".equals(fieldName)) {
+                    return readHearing(parser);
+                }
+                parser.skipChildren();
+            }
+            throw MismatchedInputException.from(parser, CPHearingEvent.class, "Common Platform hearing event has no hearing");
+        }
+    }
+
+    private List<Hearing> readHearing(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+
+        final var header = new HearingHeader(CPHearing.builder());
+        final Set<String> headerFieldsRead = new HashSet<>();
+        final List<IndexedProsecutionCase> heldProsecutionCases = new ArrayList<>();
+        final List<Hearing> hearings = new ArrayList<>();
+        var prosecutionCasesRead = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final var fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id" -> header.builder.id(parser.getValueAsString());
+                case "courtCentre" -> header.builder.courtCentre(objectMapper.readValue(parser, CPCourtCentre.class));
+                case "hearingDays" -> header.builder.hearingDays(objectMapper.readValue(parser, new TypeReference<List<CPHearingDay>>() {}));
+                case "jurisdictionType" -> header.builder.jurisdictionType(objectMapper.readValue(parser, CPJurisdictionType.class));
+                case "type" -> {
+                    final var type = objectMapper.readValue(parser, CPHearingType.class);
+                    header.builder.type(type);
+                    final var hearingType = Optional.ofNullable(type).map(CPHearingType::getDescription).orElse(null);
+                    hearings.replaceAll(hearing -> hearing.withHearingType(hearingType));
+                }
+                case "prosecutionCases" -> {
+                    prosecutionCasesRead = true;
+                    final var holdProsecutionCases = !headerFieldsRead.containsAll(REQUIRED_HEARING_FIELDS);
+                    if (holdProsecutionCases) {
+                        log.warn("Hearing fields {} come after the prosecution cases, so the cases are held until the end of the hearing",
+                                REQUIRED_HEARING_FIELDS.stream().filter(field -> !headerFieldsRead.contains(field)).sorted().toList());
+                    }
+                    readProsecutionCases(parser, prosecutionCase -> {
+                        if (holdProsecutionCases) {
+                            heldProsecutionCases.add(prosecutionCase);
+                        } else {
+                            hearings.add(asDomain(header, prosecutionCase));
+                        }
+                    });
+                }
+                default -> parser.skipChildren();
+            }
+            headerFieldsRead.add(fieldName);
+        }
+
+        for (IndexedProsecutionCase prosecutionCase : heldProsecutionCases) {
+            hearings.add(asDomain(header, prosecutionCase));
+        }
+        if (!prosecutionCasesRead || hearings.isEmpty()) {
+            // Validating a hearing with no prosecution cases reports the missing cases along with any other problems
+            validate(header.builder.prosecutionCases(List.of()).build());
+        }
+        return hearings;
+    }
+
+    private void readProsecutionCases(JsonParser parser, ProsecutionCaseConsumer consumer) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+        var index = 0;
+        for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            // Anything other than a prosecution case, including null, is rejected rather than ending the list early
+            expect(parser, token, JsonToken.START_OBJECT);
+            consumer.accept(new IndexedProsecutionCase(index++, objectMapper.readValue(parser, CPProsecutionCase.class)));
+        }
+    }
+
+    private Hearing asDomain(HearingHeader header, IndexedProsecutionCase indexedProsecutionCase) {
+        if (!header.validated) {
+            validateHeader(header.builder.prosecutionCases(List.of()).build());
+            header.validated = true;
+        }
+        validateProsecutionCase(indexedProsecutionCase);
+        final var hearing = header.builder.prosecutionCases(List.of(indexedProsecutionCase.prosecutionCase())).build();
+        return hearing.asDomain().getFirst().withHearingId(hearing.getId());
+    }
+
+    /**
+     * Validates the hearing's own fields once through the event, so that each prosecution case can then be validated
+     * without walking the court centre and hearing days again. The hearing has no prosecution cases at this point, so
+     * that violation is left for {@link #readHearing} to report if no case turns up.
+     */
+    private void validateHeader(CPHearing hearing) {
+        throwIfInvalid(validator.validate(new CPHearingEvent(hearing)).stream()
+                .filter(violation -> !PROSECUTION_CASES_PATH.equals(violation.getPropertyPath().toString()))
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Validates a prosecution case through the event in its place in the hearing, so that violations carry the same
+     * path as they would when validating the whole event. The hearing's own fields have already been checked, so only
+     * the violations within the prosecution case are kept.
+     */
+    private void validateProsecutionCase(IndexedProsecutionCase indexedProsecutionCase) {
+        final var hearing = CPHearing.builder().prosecutionCases(indexedProsecutionCase.inPlace()).build();
+        throwIfInvalid(validator.validate(new CPHearingEvent(hearing)).stream()
+                .filter(violation -> violation.getPropertyPath().toString().startsWith(PROSECUTION_CASES_PATH + "["))
+                .collect(Collectors.toSet()));
+    }
+
+    private void validate(CPHearing hearing) {
+        throwIfInvalid(validator.validate(new CPHearingEvent(hearing)));
+    }
+
+    private static void throwIfInvalid(Set<? extends ConstraintViolation<?>> errors) {
+        if (!errors.isEmpty()) {
+            throw new ConstraintViolationException(errors);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws MismatchedInputException {
+        if (actual != expected) {
+            throw MismatchedInputException.from(parser, CPHearingEvent.class, String.format("Expected %s but found %s", expected, actual));
+        }
+    }
+
+    private static class HearingHeader {
+        private final CPHearing.CPHearingBuilder builder;
+        private boolean validated;
+
+        private HearingHeader(CPHearing.CPHearingBuilder builder) {
+            this.builder = builder;
+        }
+    }
+
+    private record IndexedProsecutionCase(int index, CPProsecutionCase prosecutionCase) {
+
+        /**
+         * A list holding this prosecution case at its index and nothing before it. Null elements aren't cascaded to, so
+         * validating it reaches only this case.
+         */
+        private List<CPProsecutionCase> inPlace() {
+            return new AbstractList<>() {
+                @Override
+                public CPProsecutionCase get(int i) {
+                    Objects.checkIndex(i, size());
+                    return i == index ? prosecutionCase : null;
+                }
+
+                @Override
+                public int size() {
+                    return index + 1;
+                }
+            };
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProsecutionCaseConsumer {
+        void accept(IndexedProsecutionCase prosecutionCase) throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The differences between a received hearing and the version already held by court-case-service, as found by
+ * {@link IncomingHearingComparator#diff}. Changed defendants are keyed by the existing defendant ID,
+ * which is the ID retained when the two hearings are merged.
+ */
+@Value
+@Builder
+public class HearingDiff {
+
+    public enum DefendantChange {
+        DETAILS,
+        NAME,
+        ADDRESS,
+        PHONE_NUMBER,
+        OFFENCES
+    }
+
+    boolean caseChanged;
+    boolean hearingDaysChanged;
+    boolean defendantsAddedOrRemoved;
+    // Two defendants on one side share an identifier, so changes can't be attributed to a single existing defendant
+    boolean defendantsAmbiguous;
+    @Singular
+    Map<String, Set<DefendantChange>> changedDefendants;
+
+    public boolean hasChanges() {
+        return caseChanged || hearingDaysChanged || defendantsAddedOrRemoved || defendantsAmbiguous || !changedDefendants.isEmpty();
+    }
+
+    /**
+     * True when the only changes are within existing defendants, so they can be saved without the rest of the hearing.
+     */
+    public boolean isDefendantsOnly() {
+        return !caseChanged && !hearingDaysChanged && !defendantsAddedOrRemoved && !defendantsAmbiguous && !changedDefendants.isEmpty();
+    }
+}
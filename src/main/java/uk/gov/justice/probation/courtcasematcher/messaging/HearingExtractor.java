@@ -1,7 +1,7 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -13,12 +13,17 @@ import uk.gov.justice.probation.courtcasematcher.messaging.model.S3Message;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraHearing;
 import uk.gov.justice.probation.courtcasematcher.model.SnsMessageContainer;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 
 import jakarta.validation.ConstraintViolationException;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer.Stage;
 import uk.gov.justice.probation.courtcasematcher.service.S3Service;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @Component
@@ -28,7 +33,7 @@ import java.util.List;
 public class HearingExtractor {
     @NonNull
     @Autowired
-    final MessageParser<SnsMessageContainer> snsMessageWrapperJsonParser;
+    final SnsEnvelopeReader snsEnvelopeReader;
 
     @NonNull
     @Autowired
@@ -40,62 +45,114 @@ public class HearingExtractor {
 
     @NonNull
     @Autowired
-    ObjectMapper objectMapper;
+    final S3Service s3Service;
 
     @NonNull
     @Autowired
-    final S3Service s3Service;
+    final CommonPlatformHearingReader commonPlatformHearingReader;
+
+    @NonNull
+    @Autowired
+    final HearingStageTimer hearingStageTimer;
 
     List<Hearing> extractHearings(String payload, String messageId) {
         try {
-            SnsMessageContainer snsMessageContainer = snsMessageWrapperJsonParser.parseMessage(payload, SnsMessageContainer.class);
+            final var parseSample = hearingStageTimer.start();
+            SnsMessageContainer snsMessageContainer = snsEnvelopeReader.read(payload);
             log.debug("Extracted message ID {} from SNS message of type {}. Incoming message ID was {} ", snsMessageContainer.getMessageId(), snsMessageContainer.getMessageType(), messageId);
 
-            return switch (snsMessageContainer.getMessageType()) {
-                case LIBRA_COURT_CASE ->
-                        List.of(libraParser.parseMessage(snsMessageContainer.getMessage(), LibraHearing.class).asDomain());
-                case COMMON_PLATFORM_HEARING -> parseCPMessage(snsMessageContainer);
+            final var hearings = switch (snsMessageContainer.getMessageType()) {
+                case LIBRA_COURT_CASE -> List.of(parseLibraMessage(snsMessageContainer, parseSample));
+                case COMMON_PLATFORM_HEARING -> parseCPMessage(snsMessageContainer, parseSample);
                 default ->
                         throw new IllegalStateException("Unprocessable message type: " + snsMessageContainer.getMessageType());
             };
+            final var messageTimestamp = messageTimestamp(snsMessageContainer);
+            return hearings.stream()
+                    .map(hearing -> hearing.withMessageTimestamp(messageTimestamp))
+                    .toList();
 
         } catch (ConstraintViolationException e) {
             log.error("Message validation failed. Error: {} ", e.getMessage(), e);
             e.getConstraintViolations()
                     .forEach(cv -> log.error("Validation failed : {} at {} ", cv.getMessage(), cv.getPropertyPath().toString()));
             throw new RuntimeException(e.getMessage(), e);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.error("Message processing failed. Error: {} ", e.getMessage(), e);
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
-    private List<Hearing> parseCPMessage(SnsMessageContainer snsMessageContainer) throws JsonProcessingException {
-        final var cpHearingEvent = commonPlatformParser.parseMessage(getSNSMessage(snsMessageContainer), CPHearingEvent.class);
-        final var hearing = cpHearingEvent.asDomain();
-        return setHearingAttributes(hearing, cpHearingEvent, snsMessageContainer);
+    private Hearing parseLibraMessage(SnsMessageContainer snsMessageContainer, Timer.Sample parseSample) throws JsonProcessingException {
+        final var libraHearing = libraParser.parseMessage(snsMessageContainer.getMessage(), LibraHearing.class);
+        hearingStageTimer.stop(parseSample, Stage.SNS_PARSE, DataSource.LIBRA, libraHearing.getCourtCode());
+
+        final var mappingSample = hearingStageTimer.start();
+        final var hearing = libraHearing.asDomain();
+        hearingStageTimer.stop(mappingSample, Stage.DOMAIN_MAPPING, hearing);
+        return hearing;
     }
 
-    private String getSNSMessage(SnsMessageContainer snsMessageContainer) throws JsonProcessingException {
+    private List<Hearing> parseCPMessage(SnsMessageContainer snsMessageContainer, Timer.Sample parseSample) throws IOException {
         String eventType = snsMessageContainer.getMessageAttributes().getEventType().getValue();
-        if (eventType.equals("commonplatform.large.case.received")) {
-            return getPayloadFromS3(snsMessageContainer);
-        }
-        return snsMessageContainer.getMessage();
+        final var hearings = eventType.equals("commonplatform.large.case.received")
+                ? readHearingsFromS3(snsMessageContainer, parseSample)
+                : parseHearings(snsMessageContainer.getMessage(), parseSample);
+        return setHearingEventType(hearings, snsMessageContainer);
+    }
+
+    private List<Hearing> parseHearings(String message, Timer.Sample parseSample) throws JsonProcessingException {
+        final var cpHearingEvent = commonPlatformParser.parseMessage(message, CPHearingEvent.class);
+        hearingStageTimer.stop(parseSample, Stage.SNS_PARSE, DataSource.COMMON_PLATFORM,
+                cpHearingEvent.getHearing().getCourtCentre().getNormalisedCode());
+
+        final var mappingSample = hearingStageTimer.start();
+        final var hearings = cpHearingEvent.asDomain()
+                .stream()
+                .map(hearing -> hearing.withHearingId(cpHearingEvent.getHearing().getId()))
+                .toList();
+        stopForFirstHearing(mappingSample, Stage.DOMAIN_MAPPING, hearings);
+        return hearings;
+    }
+
+    private List<Hearing> readHearingsFromS3(SnsMessageContainer snsMessageContainer, Timer.Sample parseSample) throws IOException {
+        S3Message s3Message = snsEnvelopeReader.readS3Pointer(snsMessageContainer.getMessage());
+        // The court isn't known until the hearing has been read from S3
+        hearingStageTimer.stop(parseSample, Stage.SNS_PARSE, DataSource.COMMON_PLATFORM, null);
+
+        // Large hearings are parsed straight from the S3 response rather than loaded into a String first, so the fetch
+        // includes parsing and mapping
+        final var fetchSample = hearingStageTimer.start();
+        final var hearings = s3Service.getObject(s3Message.getS3Key(), commonPlatformHearingReader::read);
+        stopForFirstHearing(fetchSample, Stage.S3_FETCH, hearings);
+        return hearings;
     }
 
-    private String getPayloadFromS3(SnsMessageContainer snsMessageContainer) throws JsonProcessingException {
-        var snsMessage =  objectMapper.readValue(snsMessageContainer.getMessage(), ArrayList.class);
-        String s3MessageBody = objectMapper.writeValueAsString(snsMessage.get(1));
-        S3Message s3Message =  objectMapper.readValue(s3MessageBody, S3Message.class);
+    private void stopForFirstHearing(Timer.Sample sample, Stage stage, List<Hearing> hearings) {
+        if (hearings.isEmpty()) {
+            hearingStageTimer.stop(sample, stage, DataSource.COMMON_PLATFORM, null);
+        } else {
+            hearingStageTimer.stop(sample, stage, hearings.getFirst());
+        }
+    }
 
-        return s3Service.getObject(s3Message.getS3Key());
+    private static Instant messageTimestamp(SnsMessageContainer snsMessageContainer) {
+        final var timestamp = snsMessageContainer.getTimestamp();
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            log.warn("Ignoring unreadable SNS timestamp {} on message ID {}", timestamp, snsMessageContainer.getMessageId());
+            return null;
+        }
     }
 
-    private List<Hearing> setHearingAttributes(List<Hearing> hearings, CPHearingEvent cpHearingEvent, SnsMessageContainer snsMessageContainer) {
+    private List<Hearing> setHearingEventType(List<Hearing> hearings, SnsMessageContainer snsMessageContainer) {
        return hearings
             .stream()
-            .map(hearing -> hearing.withHearingId(cpHearingEvent.getHearing().getId()).withHearingEventType(snsMessageContainer.getHearingEventType().getValue()))
+            .map(hearing -> hearing.withHearingEventType(snsMessageContainer.getHearingEventType().getValue()))
             .toList();
     }
 
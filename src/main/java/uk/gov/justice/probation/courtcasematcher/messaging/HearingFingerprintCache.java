@@ -0,0 +1,110 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Address;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Name;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Offence;
+import uk.gov.justice.probation.courtcasematcher.model.domain.PhoneNumber;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Remembers a fingerprint of the last hearing content processed for each hearing. The fingerprint covers the fields
+ * used by {@link IncomingHearingComparator}, so a message whose fingerprint matches needs no further work. A TTL of
+ * zero disables the cache.
+ */
+@Component
+public class HearingFingerprintCache {
+
+    static final String FINGERPRINT_COUNTER = "court_case_matcher.hearing.fingerprint";
+    private static final char SEPARATOR = '\u001f';
+
+    private final Cache<String, String> fingerprints;
+    private final Counter matched;
+    private final Counter notMatched;
+
+    public HearingFingerprintCache(MeterRegistry meterRegistry,
+                                   @Value("${hearing-fingerprint-cache.ttl:0s}") Duration ttl,
+                                   @Value("${hearing-fingerprint-cache.max-size:50000}") long maxSize) {
+        this.fingerprints = ttl.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+        this.matched = meterRegistry.counter(FINGERPRINT_COUNTER, "result", "matched");
+        this.notMatched = meterRegistry.counter(FINGERPRINT_COUNTER, "result", "not_matched");
+    }
+
+    public boolean isEnabled() {
+        return fingerprints != null;
+    }
+
+    public boolean matches(Hearing hearing, String fingerprint) {
+        final var matches = fingerprint.equals(fingerprints.getIfPresent(HearingKeys.of(hearing)));
+        (matches ? matched : notMatched).increment();
+        return matches;
+    }
+
+    public void record(Hearing hearing, String fingerprint) {
+        fingerprints.put(HearingKeys.of(hearing), fingerprint);
+    }
+
+    static String fingerprint(Hearing hearing) {
+        final var content = new StringBuilder();
+        append(content, hearing.getUrn());
+        appendAll(content, hearing.getHearingDays(), day -> append(content, day.getCourtCode(), day.getCourtRoom(), day.getListNo(), day.getSessionStartTime()));
+        appendAll(content, hearing.getDefendants(), defendant -> appendDefendant(content, defendant));
+        return sha256(content.toString());
+    }
+
+    private static void appendDefendant(StringBuilder content, Defendant defendant) {
+        append(content, defendant.getPnc(), defendant.getCro(), defendant.getSex(), defendant.getType(), defendant.getDateOfBirth());
+        append(content, Optional.ofNullable(defendant.getName()).map(Name::getFullName).orElse(null));
+        final var address = Optional.ofNullable(defendant.getAddress());
+        append(content, address.map(Address::getLine1).orElse(null), address.map(Address::getLine2).orElse(null),
+                address.map(Address::getLine3).orElse(null), address.map(Address::getLine4).orElse(null),
+                address.map(Address::getLine5).orElse(null), address.map(Address::getPostcode).orElse(null));
+        final var phoneNumber = Optional.ofNullable(defendant.getPhoneNumber());
+        append(content, phoneNumber.map(PhoneNumber::getHome).orElse(null), phoneNumber.map(PhoneNumber::getMobile).orElse(null),
+                phoneNumber.map(PhoneNumber::getWork).orElse(null));
+        appendAll(content, defendant.getOffences(), offence -> appendOffence(content, offence));
+    }
+
+    private static void appendOffence(StringBuilder content, Offence offence) {
+        append(content, offence.getOffenceTitle(), offence.getOffenceSummary(), offence.getAct(), offence.getSequenceNumber(), offence.getListNo());
+    }
+
+    private static <T> void appendAll(StringBuilder content, List<T> items, Consumer<T> appender) {
+        // Distinguish a missing list from an empty one, as the comparator does
+        append(content, items == null ? "null" : items.size());
+        Optional.ofNullable(items).ifPresent(list -> list.forEach(appender));
+    }
+
+    private static void append(StringBuilder content, Object... values) {
+        for (Object value : values) {
+            content.append(value).append(SEPARATOR);
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
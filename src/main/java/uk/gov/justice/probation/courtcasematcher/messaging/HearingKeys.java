@@ -0,0 +1,28 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
+
+import java.util.Optional;
+
+final class HearingKeys {
+
+    private HearingKeys() {
+    }
+
+    /**
+     * A key identifying the hearing a message is about, stable across re-sends of the same hearing.
+     */
+    static String of(Hearing hearing) {
+        if (hearing.getSource() == DataSource.COMMON_PLATFORM) {
+            return String.join("/", hearing.getHearingId(), hearing.getCaseId());
+        }
+        // New LIBRA hearings are assigned random IDs, so use the court list coordinates they are looked up by
+        final var courtCode = Optional.ofNullable(hearing.getHearingDays())
+                .flatMap(hearingDays -> hearingDays.stream().findFirst())
+                .map(HearingDay::getCourtCode)
+                .orElse(null);
+        return String.join("/", courtCode, hearing.getCaseNo(), hearing.getListNo());
+    }
+}
@@ -16,12 +16,20 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.mapper.HearingMapper;
 import uk.gov.justice.probation.courtcasematcher.service.CourtCaseService;
 import uk.gov.justice.probation.courtcasematcher.service.CprService;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer.Stage;
+import uk.gov.justice.probation.courtcasematcher.service.OffenderSearchService;
 import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import static uk.gov.justice.probation.courtcasematcher.messaging.IncomingHearingComparator.hasCourtHearingChanged;
 
 @AllArgsConstructor(onConstructor_ = @Autowired)
 @NoArgsConstructor(access = AccessLevel.PRIVATE, force = true)
@@ -30,6 +38,9 @@ import static uk.gov.justice.probation.courtcasematcher.messaging.IncomingHearin
 @Slf4j
 public class HearingProcessor {
 
+    static final String BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE = "bypass-offender-search-cache-on-update";
+    static final String PARTIAL_HEARING_UPDATES = "partial-hearing-updates";
+
     @NonNull
     private final TelemetryService telemetryService;
 
@@ -42,56 +53,134 @@ public class HearingProcessor {
 
     private final FeatureFlags featureFlags;
 
-    public void process(Hearing receivedHearing, String messageId) {
-        try {
-            // New LIBRA cases will have no case or defendant ID, and we need to assign
-            if (receivedHearing.getSource() == DataSource.LIBRA && receivedHearing.getCaseId() == null) {
-                receivedHearing = assignUuids(receivedHearing);
-            }
-            matchAndSaveHearing(receivedHearing, messageId);
-        } catch (Exception ex) {
-            log.error("Message processing failed.", ex);
-            telemetryService.trackProcessingFailureEvent(receivedHearing);
-            throw new RuntimeException(ex.getMessage(), ex);
+    @NonNull
+    private final HearingFingerprintCache hearingFingerprintCache;
+
+    @NonNull
+    private final HearingSerialiser hearingSerialiser;
+
+    @NonNull
+    private final HearingStageTimer hearingStageTimer;
+
+    public Mono<Void> process(Hearing receivedHearing, String messageId) {
+        // Messages for the same hearing are processed one at a time, and queued re-sends collapse to the most recently
+        // published
+        return hearingSerialiser.submit(HearingKeys.of(receivedHearing), receivedHearing.getMessageTimestamp(),
+                () -> processNow(receivedHearing, messageId));
+    }
+
+    private Mono<Void> processNow(Hearing receivedHearing, String messageId) {
+        return Mono.defer(() -> {
+                    // New LIBRA cases will have no case or defendant ID, and we need to assign
+                    if (receivedHearing.getSource() == DataSource.LIBRA && receivedHearing.getCaseId() == null) {
+                        return matchAndSaveHearing(assignUuids(receivedHearing), messageId);
+                    }
+                    return matchAndSaveHearing(receivedHearing, messageId);
+                })
+                .doOnError(ex -> {
+                    log.error("Message processing failed.", ex);
+                    telemetryService.trackProcessingFailureEvent(receivedHearing);
+                })
+                .onErrorMap(ex -> new RuntimeException(ex.getMessage(), ex))
+                .contextWrite(OffenderSearchService::openHearingScope)
+                .contextWrite(HearingStageTimer.withHearingTags(receivedHearing));
+    }
+
+    private Mono<Void> matchAndSaveHearing(Hearing receivedHearing, String messageId) {
+        if (!hearingFingerprintCache.isEnabled()) {
+            return findAndSaveHearing(receivedHearing, messageId);
+        }
+
+        final var fingerprint = HearingFingerprintCache.fingerprint(receivedHearing);
+        if (hearingFingerprintCache.matches(receivedHearing, fingerprint)) {
+            log.info("Skipping hearingId {} as it is unchanged since it was last processed", receivedHearing.getHearingId());
+            telemetryService.trackHearingFingerprintMatchedEvent(receivedHearing);
+            return Mono.empty();
         }
+        return findAndSaveHearing(receivedHearing, messageId)
+                .doOnSuccess(ignored -> hearingFingerprintCache.record(receivedHearing, fingerprint));
     }
 
-    private void matchAndSaveHearing(Hearing receivedHearing, String messageId) {
-        courtCaseService.findHearing(receivedHearing)
-                .blockOptional()
-                .ifPresentOrElse(
-                        existingHearing -> {
-                            if (hasCourtHearingChanged(receivedHearing, existingHearing)) {
-                                telemetryService.trackHearingChangedEvent(receivedHearing);
-                                mergeAndUpdateExistingHearing(receivedHearing, existingHearing);
-                            } else {
-                                telemetryService.trackHearingUnChangedEvent(receivedHearing);
-                            }
-                        },
-                        () -> {
+    private Mono<Void> findAndSaveHearing(Hearing receivedHearing, String messageId) {
+        return courtCaseService.findHearing(receivedHearing)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(existingHearing -> existingHearing
+                        .map(hearing -> updateIfChanged(receivedHearing, hearing))
+                        .orElseGet(() -> {
                             telemetryService.trackNewHearingEvent(receivedHearing, messageId);
-                            applyMatchesAndSave(receivedHearing);
-                        }
+                            return applyMatchesAndSave(receivedHearing);
+                        })
                 );
     }
 
-    private void mergeAndUpdateExistingHearing(Hearing receivedHearing, Hearing existingHearing) {
+    private Mono<Void> updateIfChanged(Hearing receivedHearing, Hearing existingHearing) {
+        final var diff = hearingStageTimer.time(Stage.COMPARISON, receivedHearing,
+                () -> IncomingHearingComparator.diff(receivedHearing, existingHearing));
+        if (diff.hasChanges()) {
+            telemetryService.trackHearingChangedEvent(receivedHearing);
+            return mergeAndUpdateExistingHearing(receivedHearing, existingHearing, diff);
+        }
+        telemetryService.trackHearingUnChangedEvent(receivedHearing);
+        return Mono.empty();
+    }
+
+    private Mono<Void> mergeAndUpdateExistingHearing(Hearing receivedHearing, Hearing existingHearing, HearingDiff diff) {
         var courtCaseMerged = HearingMapper.merge(receivedHearing, existingHearing);
-        updateAndSave(courtCaseMerged);
+        return updateAndSave(courtCaseMerged, existingHearing, diff);
     }
 
-    private void applyMatchesAndSave(final Hearing hearing) {
-        cprService.updateDefendants(hearing.getDefendants());
-        courtCaseService.saveHearing(hearing);
+    private Mono<Void> applyMatchesAndSave(final Hearing hearing) {
+        return cprService.updateDefendants(hearing.getDefendants())
+                .then(Mono.defer(() -> courtCaseService.saveHearing(hearing)));
     }
 
-    private void updateAndSave(final Hearing hearing) {
+    private Mono<Void> updateAndSave(final Hearing hearing, Hearing existingHearing, HearingDiff diff) {
         log.info("Upsert caseId {}", hearing.getCaseId());
-        cprService.updateDefendants(hearing.getDefendants());
+        final var update = cprService.updateDefendants(hearing.getDefendants())
+                .then(Mono.defer(() -> courtCaseService.updateProbationStatusDetail(hearing)
+                        .onErrorResume(t -> Mono.just(hearing))))
+                .flatMap(updatedHearing -> save(updatedHearing, existingHearing, diff));
+
+        if (featureFlags.getFlag(BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE)) {
+            return update.contextWrite(OffenderSearchService::bypassSharedCache);
+        }
+        return update;
+    }
+
+    private Mono<Void> save(Hearing hearing, Hearing existingHearing, HearingDiff diff) {
+        if (featureFlags.getFlag(PARTIAL_HEARING_UPDATES) && diff.isDefendantsOnly()) {
+            final var defendantIds = defendantsToSave(hearing, existingHearing, diff.getChangedDefendants().keySet());
+            if (!defendantIds.contains(null) && hasDefendantIds(hearing, defendantIds)) {
+                log.info("Updating defendants {} only for caseId {}", defendantIds, hearing.getCaseId());
+                return courtCaseService.saveDefendants(hearing, defendantIds);
+            }
+        }
+        return courtCaseService.saveHearing(hearing);
+    }
+
+    /**
+     * The changed defendants, along with any others that CPR enrichment or the probation status update have since
+     * changed from the versions court-case-service holds, so that their updates and offender matches aren't lost.
+     */
+    private static Set<String> defendantsToSave(Hearing hearing, Hearing existingHearing, Set<String> changedDefendantIds) {
+        final Map<String, Defendant> existingDefendants = new HashMap<>();
+        Optional.ofNullable(existingHearing.getDefendants()).orElse(List.of())
+                .forEach(defendant -> existingDefendants.putIfAbsent(defendant.getDefendantId(), defendant));
+
+        final Set<String> defendantIds = new HashSet<>(changedDefendantIds);
+        hearing.getDefendants().stream()
+                .filter(defendant -> !defendant.equals(existingDefendants.get(defendant.getDefendantId())))
+                .map(Defendant::getDefendantId)
+                .forEach(defendantIds::add);
+        return defendantIds;
+    }
 
-        courtCaseService.updateProbationStatusDetail(hearing)
-                .onErrorResume(t -> Mono.just(hearing))
-                .subscribe(courtCaseService::saveHearing);
+    private static boolean hasDefendantIds(Hearing hearing, Set<String> defendantIds) {
+        return hearing.getDefendants().stream()
+                .map(Defendant::getDefendantId)
+                .collect(Collectors.toSet())
+                .containsAll(defendantIds);
     }
 
     Hearing assignUuids(Hearing hearing) {
@@ -0,0 +1,150 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one task at a time for each key. Tasks submitted while one is running wait for it, and only the most
+ * recently published of them is run afterwards; those it replaced complete with its result. A task published before
+ * the one already running or queued is not run at all and completes with that newer task's result. Tasks without a
+ * publish time are treated as the newest.
+ */
+@Slf4j
+@Component
+public class HearingSerialiser {
+
+    static final String COALESCED_COUNTER = "court_case_matcher.hearing.coalesced";
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public HearingSerialiser(MeterRegistry meterRegistry) {
+        this.coalesced = meterRegistry.counter(COALESCED_COUNTER);
+    }
+
+    public Mono<Void> submit(String key, Instant messageTimestamp, Supplier<Mono<Void>> task) {
+        return Mono.deferContextual(context -> {
+            final var submission = new Submission();
+            // compute() locks only the map bin holding the key, so unrelated keys don't contend
+            slots.compute(key, (k, slot) -> {
+                if (slot == null) {
+                    submission.runNow = true;
+                    final var newSlot = new Slot();
+                    newSlot.runningTimestamp = messageTimestamp;
+                    return newSlot;
+                }
+                if (isOlder(messageTimestamp, slot.newestTimestamp())) {
+                    coalesced.increment();
+                    log.info("Skipping update for hearing {} published at {} as a newer one is already queued", key, messageTimestamp);
+                    submission.result = slot.newestResult();
+                    return slot;
+                }
+                if (slot.pendingResult == null) {
+                    slot.pendingResult = Sinks.one();
+                } else {
+                    coalesced.increment();
+                    log.info("Replacing queued update for hearing {} with a newer one", key);
+                }
+                slot.pendingTask = task;
+                slot.pendingTimestamp = messageTimestamp;
+                // Queued tasks run from whichever subscription finishes the task before them, so they take their
+                // submitter's context along, e.g. the caller's stage timer tags
+                slot.pendingContext = context;
+                submission.result = slot.pendingResult;
+                return slot;
+            });
+
+            if (submission.runNow) {
+                return run(key, task);
+            }
+            return submission.result.asMono();
+        });
+    }
+
+    private Mono<Void> run(String key, Supplier<Mono<Void>> task) {
+        return Mono.defer(task)
+                .doOnSuccess(ignored -> finish(key, null))
+                .doOnError(error -> finish(key, error))
+                .doOnCancel(() -> finish(key, new CancellationException("Update for hearing " + key + " was cancelled")));
+    }
+
+    private void finish(String key, Throwable error) {
+        final var finished = new Submission();
+        final var next = new Submission();
+        slots.computeIfPresent(key, (k, slot) -> {
+            finished.result = slot.runningResult;
+            if (slot.pendingTask == null) {
+                return null;
+            }
+            next.task = slot.pendingTask;
+            next.context = slot.pendingContext;
+            slot.runningTimestamp = slot.pendingTimestamp;
+            slot.runningResult = slot.pendingResult;
+            slot.pendingTask = null;
+            slot.pendingTimestamp = null;
+            slot.pendingContext = null;
+            slot.pendingResult = null;
+            return slot;
+        });
+
+        if (finished.result != null) {
+            if (error == null) {
+                finished.result.tryEmitEmpty();
+            } else {
+                finished.result.tryEmitError(error);
+            }
+        }
+        if (next.task != null) {
+            // The outcome is passed on to the tasks it replaced by finish(), so there is nothing more to do with it here
+            run(key, next.task)
+                    .contextWrite(next.context)
+                    .subscribe(null, ignored -> {});
+        }
+    }
+
+    private static boolean isOlder(Instant messageTimestamp, Instant newestTimestamp) {
+        return messageTimestamp != null && newestTimestamp != null && messageTimestamp.isBefore(newestTimestamp);
+    }
+
+    private static final class Slot {
+        private Instant runningTimestamp;
+        // Created only when a task joins the running one
+        private Sinks.One<Void> runningResult;
+        private Supplier<Mono<Void>> pendingTask;
+        private Instant pendingTimestamp;
+        private ContextView pendingContext;
+        private Sinks.One<Void> pendingResult;
+
+        private Instant newestTimestamp() {
+            return pendingTask != null ? pendingTimestamp : runningTimestamp;
+        }
+
+        private Sinks.One<Void> newestResult() {
+            if (pendingTask != null) {
+                return pendingResult;
+            }
+            if (runningResult == null) {
+                runningResult = Sinks.one();
+            }
+            return runningResult;
+        }
+    }
+
+    private static final class Submission {
+        private boolean runNow;
+        private Supplier<Mono<Void>> task;
+        private ContextView context;
+        private Sinks.One<Void> result;
+    }
+}
@@ -1,6 +1,8 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
+import uk.gov.justice.probation.courtcasematcher.messaging.HearingDiff.DefendantChange;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Address;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
@@ -8,8 +10,15 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.Name;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Offence;
 import uk.gov.justice.probation.courtcasematcher.model.domain.PhoneNumber;
 
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 import static java.util.Comparator.comparing;
@@ -53,53 +62,98 @@ public class IncomingHearingComparator {
 
 
     public static boolean hasCourtHearingChanged(Hearing hearing, Hearing hearingToCompare) {
-
-        if (hasHearingDaysChanged(hearing.getHearingDays(), hearingToCompare.getHearingDays()) ||
-                hasDefendantsChanged(hearing.getDefendants(), hearingToCompare.getDefendants()) ||
-                hasDefendantOffencesChanged(hearing.getDefendants(), hearingToCompare.getDefendants())) {
-            return true;
-        }
-
-        return hasHearingChanged(hearing, hearingToCompare);
+        return diff(hearing, hearingToCompare).hasChanges();
     }
 
-    private static boolean hasHearingChanged(Hearing hearing, Hearing hearingToCompare) {
-        return hearingComparator.compare(hearing, hearingToCompare) != 0;
-    }
-
-    private static boolean hasDefendantsChanged(List<Defendant> defendants, List<Defendant> defendantsToCompare) {
-        return areNotEqualIgnoringOrder(defendants, defendantsToCompare, defendantComparator) ||
-                hasDefendantNameChanged(defendants, defendantsToCompare) ||
-                hasDefendantAddressChanged(defendants, defendantsToCompare) ||
-                hasDefendantPhoneNumberChanged(defendants, defendantsToCompare);
-    }
+    /**
+     * Pairs each received defendant with its existing counterpart once, by defendant ID (or cId for LIBRA), and
+     * compares the field groups of each pair. Defendants without an identifier on either side are paired by position.
+     * If the defendants can't be paired one to one, e.g. two of them share a defendant ID, the diff is marked as
+     * ambiguous so that the whole hearing is saved.
+     */
+    public static HearingDiff diff(Hearing hearing, Hearing hearingToCompare) {
+        final var diff = HearingDiff.builder()
+                .caseChanged(hearingComparator.compare(hearing, hearingToCompare) != 0)
+                .hearingDaysChanged(areNotEqualIgnoringOrder(hearing.getHearingDays(), hearingToCompare.getHearingDays(), hearingDayComparator));
+
+        final var defendants = hearing.getDefendants();
+        final var defendantsToCompare = hearingToCompare.getDefendants();
+        if (isNull(defendants) || isNull(defendantsToCompare)) {
+            return diff.defendantsAddedOrRemoved(isNull(defendants) != isNull(defendantsToCompare)).build();
+        }
 
-    private static boolean hasHearingDaysChanged(List<HearingDay> hearingDays, List<HearingDay> hearingDaysToCompare) {
-        return areNotEqualIgnoringOrder(hearingDays, hearingDaysToCompare, hearingDayComparator);
-    }
+        final var source = hearing.getSource();
+        final Map<String, Defendant> existingByKey = new HashMap<>(defendantsToCompare.size() * 2);
+        var ambiguous = false;
+        for (Defendant existing : defendantsToCompare) {
+            final var key = defendantKey(existing, source);
+            if (key != null && existingByKey.putIfAbsent(key, existing) != null) {
+                ambiguous = true;
+            }
+        }
 
-    private static boolean hasDefendantOffencesChanged(List<Defendant> defendants, List<Defendant> defendantsToCompare) {
-        return defendants.stream()
-                .anyMatch(defendantReceived -> defendantsToCompare.stream()
-                        .anyMatch(existingDefendant -> areNotEqualIgnoringOrder(defendantReceived.getOffences(), existingDefendant.getOffences(), offenceComparator)));
+        final Set<Defendant> paired = Collections.newSetFromMap(new IdentityHashMap<>());
+        var addedOrRemoved = defendants.size() != defendantsToCompare.size();
+        for (int i = 0; i < defendants.size(); i++) {
+            final var index = i;
+            final var received = defendants.get(index);
+            final var key = defendantKey(received, source);
+            final var existing = Optional.ofNullable(key)
+                    .map(existingByKey::get)
+                    .orElseGet(() -> positionalMatch(key, index, defendantsToCompare, source));
+
+            if (existing == null) {
+                addedOrRemoved = true;
+                continue;
+            }
+            if (!paired.add(existing)) {
+                ambiguous = true;
+            }
+            final var changes = diffDefendant(received, existing);
+            if (!changes.isEmpty()) {
+                diff.changedDefendant(Optional.ofNullable(existing.getDefendantId()).orElse(String.valueOf(index)), changes);
+            }
+        }
+        return diff.defendantsAddedOrRemoved(addedOrRemoved)
+                .defendantsAmbiguous(ambiguous)
+                .build();
     }
 
-    private static boolean hasDefendantAddressChanged(List<Defendant> defendants, List<Defendant> defendantsToCompare) {
-        return defendants.stream()
-                .anyMatch(defendantReceived -> defendantsToCompare.stream()
-                        .anyMatch(existingDefendant -> addressComparator.compare(defendantReceived.getAddress(), existingDefendant.getAddress()) != 0));
+    private static Defendant positionalMatch(String key, int index, List<Defendant> defendantsToCompare, DataSource source) {
+        if (index >= defendantsToCompare.size()) {
+            return null;
+        }
+        // Only fall back to position when one side has no identifier, e.g. records saved before the cId was held
+        final var candidate = defendantsToCompare.get(index);
+        return key == null || defendantKey(candidate, source) == null ? candidate : null;
     }
 
-    private static boolean hasDefendantNameChanged(List<Defendant> defendants, List<Defendant> defendantsToCompare) {
-        return defendants.stream()
-                .anyMatch(defendantReceived -> defendantsToCompare.stream()
-                        .anyMatch(existingDefendant -> defendantNameComparator.compare(defendantReceived.getName(), existingDefendant.getName()) != 0));
+    private static String defendantKey(Defendant defendant, DataSource source) {
+        // New LIBRA hearings are given random defendant IDs, so the cId is the only stable identifier
+        if (source == DataSource.LIBRA) {
+            return defendant.getCId();
+        }
+        return defendant.getDefendantId();
     }
 
-    private static boolean hasDefendantPhoneNumberChanged(List<Defendant> defendants, List<Defendant> defendantsToCompare) {
-        return defendants.stream()
-                .anyMatch(defendantReceived -> defendantsToCompare.stream()
-                        .anyMatch(existingDefendant -> defendantPhoneNumberComparator.compare(defendantReceived.getPhoneNumber(), existingDefendant.getPhoneNumber()) != 0));
+    private static Set<DefendantChange> diffDefendant(Defendant defendant, Defendant defendantToCompare) {
+        final var changes = EnumSet.noneOf(DefendantChange.class);
+        if (defendantComparator.compare(defendant, defendantToCompare) != 0) {
+            changes.add(DefendantChange.DETAILS);
+        }
+        if (defendantNameComparator.compare(defendant.getName(), defendantToCompare.getName()) != 0) {
+            changes.add(DefendantChange.NAME);
+        }
+        if (addressComparator.compare(defendant.getAddress(), defendantToCompare.getAddress()) != 0) {
+            changes.add(DefendantChange.ADDRESS);
+        }
+        if (defendantPhoneNumberComparator.compare(defendant.getPhoneNumber(), defendantToCompare.getPhoneNumber()) != 0) {
+            changes.add(DefendantChange.PHONE_NUMBER);
+        }
+        if (areNotEqualIgnoringOrder(defendant.getOffences(), defendantToCompare.getOffences(), offenceComparator)) {
+            changes.add(DefendantChange.OFFENCES);
+        }
+        return changes;
     }
 
     private static <T> boolean areNotEqualIgnoringOrder(List<T> list1, List<T> list2, Comparator<? super T> comparator) {
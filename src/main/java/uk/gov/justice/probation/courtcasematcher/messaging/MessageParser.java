@@ -1,21 +1,30 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Valid;
 import jakarta.validation.Validator;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
 @Slf4j
 public class MessageParser<T> {
     private final Validator validator;
     private final ObjectMapper mapper;
+    // ObjectReaders are immutable and hold their root deserializer, so one per type saves resolving it on every message
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
 
     public MessageParser(final ObjectMapper mapper, final Validator validator) {
         super();
@@ -23,13 +32,49 @@ public class MessageParser<T> {
         this.validator = validator;
     }
 
+    /**
+     * Builds the reader for the given message type up front, along with the validator's constraint metadata for every
+     * class the message cascades to, so both are resolved at startup rather than on the first message.
+     */
+    public MessageParser(final ObjectMapper mapper, final Validator validator, final Class<T> type) {
+        this(mapper, validator);
+        readerFor(type);
+        loadConstraintMetadata(type, new HashSet<>());
+    }
+
     public T parseMessage (final String messageString, final Class<T> type) throws JsonProcessingException {
-        JavaType javaType = mapper.getTypeFactory().constructType(type);
-        T message = mapper.readValue(messageString, javaType);
+        T message = readerFor(type).readValue(messageString);
         validate(message);
         return message;
     }
 
+    private ObjectReader readerFor(Class<T> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    private void loadConstraintMetadata(Class<?> type, Set<Class<?>> loaded) {
+        if (!loaded.add(type)) {
+            return;
+        }
+        validator.getConstraintsForClass(type);
+        for (Class<?> declaringClass = type; declaringClass != null && declaringClass != Object.class; declaringClass = declaringClass.getSuperclass()) {
+            for (Field field : declaringClass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Valid.class)) {
+                    loadConstraintMetadata(cascadedType(field), loaded);
+                }
+            }
+        }
+    }
+
+    private static Class<?> cascadedType(Field field) {
+        if (Collection.class.isAssignableFrom(field.getType())
+            && field.getGenericType() instanceof ParameterizedType parameterizedType
+            && parameterizedType.getActualTypeArguments()[0] instanceof Class<?> elementType) {
+            return elementType;
+        }
+        return field.getType();
+    }
+
     private void validate(T messageType) {
         Set<ConstraintViolation<Object>> errors = validator.validate(messageType);
         if (!errors.isEmpty()) {
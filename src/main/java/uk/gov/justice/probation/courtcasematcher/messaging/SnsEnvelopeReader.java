@@ -0,0 +1,88 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.S3Message;
+import uk.gov.justice.probation.courtcasematcher.model.MessageAttributes;
+import uk.gov.justice.probation.courtcasematcher.model.SnsMessageContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads SNS envelopes in a single streaming pass, keeping only the fields needed to route the inner message and
+ * skipping signatures and URLs without building strings for them.
+ */
+@Component
+@AllArgsConstructor(onConstructor_ = @Autowired)
+public class SnsEnvelopeReader {
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public SnsMessageContainer read(String payload) throws JsonProcessingException {
+        final var container = SnsMessageContainer.builder();
+        try (JsonParser parser = objectMapper.createParser(payload)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var fieldName = parser.currentName();
+                final var valueToken = parser.nextToken();
+                switch (fieldName) {
+                    case "Type" -> container.type(parser.getValueAsString());
+                    case "MessageId" -> container.messageId(parser.getValueAsString());
+                    case "TopicArn" -> container.topicArn(parser.getValueAsString());
+                    case "Message" -> container.message(parser.getValueAsString());
+                    case "Timestamp" -> container.timestamp(parser.getValueAsString());
+                    case "MessageAttributes" -> container.messageAttributes(valueToken == JsonToken.VALUE_NULL
+                            ? null
+                            : objectMapper.readValue(parser, MessageAttributes.class));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            // Only reachable for I/O failures, which cannot happen reading from a String
+            throw new UncheckedIOException(e);
+        }
+
+        final var snsMessageContainer = container.build();
+        final var errors = validator.validate(snsMessageContainer);
+        if (!errors.isEmpty()) {
+            throw new ConstraintViolationException(errors);
+        }
+        return snsMessageContainer;
+    }
+
+    /**
+     * Reads the S3 pointer from a large message, which the SNS extended client sends as
+     * <code>["software.amazon.payloadoffloading.PayloadS3Pointer", {"s3BucketName": ..., "s3Key": ...}]</code>.
+     */
+    public S3Message readS3Pointer(String message) throws JsonProcessingException {
+        try (JsonParser parser = objectMapper.createParser(message)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            expect(parser, parser.nextToken(), JsonToken.VALUE_STRING);
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return objectMapper.readValue(parser, S3Message.class);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws MismatchedInputException {
+        if (actual != expected) {
+            throw MismatchedInputException.from(parser, (Class<?>) null, String.format("Expected %s but found %s", expected, actual));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import io.awspring.cloud.sqs.annotation.SqsListener;
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives all the messages of a poll together, as an alternative to {@link SqsMessageReceiver}. Hearings re-sent
+ * within the same poll collapse to the one most recently published, and each message is acknowledged only once every hearing it
+ * carried has been processed, so one failure does not redeliver the whole batch.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "hmpps.sqs.queues.courtcasesqueue.batchListener", havingValue = "true")
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PRIVATE, force = true)
+public class SqsBatchMessageReceiver {
+
+    @Autowired
+    private final HearingProcessor hearingProcessor;
+
+    @Autowired
+    private final TelemetryService telemetryService;
+
+    @Autowired
+    @NonNull
+    private final HearingExtractor hearingExtractor;
+
+    @Autowired
+    @NonNull
+    private final Scheduler messageExtractionScheduler;
+
+    @SqsListener(
+        value = "courtcasesqueue",
+        factory = "hmppsQueueContainerFactoryProxy",
+        acknowledgementMode = "MANUAL",
+        maxConcurrentMessages = "${hmpps.sqs.queues.courtcasesqueue.maxConcurrentMessages:3}",
+        maxMessagesPerPoll = "${hmpps.sqs.queues.courtcasesqueue.maxMessagesPerPoll:3}"
+    )
+    public CompletableFuture<Void> receive(List<Message<String>> messages, BatchAcknowledgement<String> acknowledgement) {
+        log.info("Received batch of {} JSON messages from SQS queue", messages.size());
+
+        return Flux.fromIterable(messages)
+                .concatMap(message -> extractHearings(message)
+                        .map(hearings -> new ReceivedMessage(message, hearings)))
+                .collectList()
+                .flatMap(receivedMessages -> processLatestHearings(receivedMessages)
+                        .map(processedKeys -> receivedMessages.stream()
+                                .filter(receivedMessage -> processedKeys.containsAll(receivedMessage.hearingKeys()))
+                                .map(ReceivedMessage::message)
+                                .toList()))
+                .flatMap(processedMessages -> Mono.fromFuture(() -> acknowledgement.acknowledgeAsync(processedMessages)))
+                .toFuture();
+    }
+
+    private Mono<List<Hearing>> extractHearings(Message<String> message) {
+        final var messageId = messageId(message);
+        telemetryService.trackHearingMessageReceivedEvent(messageId);
+
+        return Mono.fromCallable(() -> hearingExtractor.extractHearings(message.getPayload(), messageId))
+                .subscribeOn(messageExtractionScheduler)
+                .map(hearings -> hearings.stream()
+                        .filter(Hearing::isValidHearingForProcessing)
+                        .toList())
+                .onErrorResume(e -> {
+                    // Leave the message unacknowledged so that it is redelivered on its own
+                    log.error("Failed to extract hearings from messageId {}", messageId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Set<String>> processLatestHearings(List<ReceivedMessage> receivedMessages) {
+        // Messages in a poll come in no particular order, so the hearing from the most recently published message wins
+        final Map<String, LatestHearing> latestHearings = new LinkedHashMap<>();
+        receivedMessages.forEach(receivedMessage -> receivedMessage.hearings()
+                .forEach(hearing -> latestHearings.merge(HearingKeys.of(hearing),
+                        new LatestHearing(hearing, messageId(receivedMessage.message())), LatestHearing::newest)));
+
+        if (latestHearings.size() < receivedMessages.stream().mapToLong(receivedMessage -> receivedMessage.hearings().size()).sum()) {
+            log.info("Collapsed re-sent hearings in batch to {} distinct hearings", latestHearings.size());
+        }
+
+        return Flux.fromIterable(latestHearings.entrySet())
+                .flatMap(entry -> hearingProcessor.process(entry.getValue().hearing(), entry.getValue().messageId())
+                        .thenReturn(entry.getKey())
+                        // HearingProcessor has already logged and tracked the failure
+                        .onErrorResume(e -> Mono.empty()))
+                .collect(HashSet::new, Set::add);
+    }
+
+    private static String messageId(Message<String> message) {
+        return String.valueOf(message.getHeaders().getId());
+    }
+
+    private record ReceivedMessage(Message<String> message, List<Hearing> hearings) {
+        List<String> hearingKeys() {
+            return hearings.stream().map(HearingKeys::of).toList();
+        }
+    }
+
+    private record LatestHearing(Hearing hearing, String messageId) {
+
+        /**
+         * The hearing from the more recently published message. Where either publish time is unknown, or they are the
+         * same, the one received later in the poll is kept.
+         */
+        static LatestHearing newest(LatestHearing earlier, LatestHearing later) {
+            final var earlierTimestamp = earlier.hearing().getMessageTimestamp();
+            final var laterTimestamp = later.hearing().getMessageTimestamp();
+            if (earlierTimestamp != null && laterTimestamp != null && laterTimestamp.isBefore(earlierTimestamp)) {
+                return earlier;
+            }
+            return later;
+        }
+    }
+}
@@ -8,12 +8,20 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
 
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Component
+@ConditionalOnProperty(value = "hmpps.sqs.queues.courtcasesqueue.batchListener", havingValue = "false", matchIfMissing = true)
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PRIVATE, force = true)
 public class SqsMessageReceiver {
@@ -28,25 +36,30 @@ public class SqsMessageReceiver {
     @NonNull
     private final HearingExtractor hearingExtractor;
 
+    @Autowired
+    @NonNull
+    private final Scheduler messageExtractionScheduler;
+
     @SqsListener(
         value = "courtcasesqueue",
         factory = "hmppsQueueContainerFactoryProxy",
         maxConcurrentMessages = "${hmpps.sqs.queues.courtcasesqueue.maxConcurrentMessages:3}",
         maxMessagesPerPoll = "${hmpps.sqs.queues.courtcasesqueue.maxMessagesPerPoll:3}"
     )
-    public void receive(
+    public CompletableFuture<Void> receive(
             @NotEmpty String message,
             @Header(value = "id") String messageId){
         log.info("Received JSON message from SQS queue with messageId: {}. ", messageId);
 
         telemetryService.trackHearingMessageReceivedEvent(messageId);
-        final var hearings = hearingExtractor.extractHearings(message, messageId);
-
-        hearings.forEach(hearing -> {
-            if (hearing.isValidHearingForProcessing()) {
-                hearingProcessor.process(hearing, messageId);
-            }
-        });
 
+        // The message is acknowledged when the returned future completes, so nothing below blocks the listener thread
+        return Mono.fromCallable(() -> hearingExtractor.extractHearings(message, messageId))
+                .subscribeOn(messageExtractionScheduler)
+                .flatMapMany(Flux::fromIterable)
+                .filter(Hearing::isValidHearingForProcessing)
+                .concatMap(hearing -> hearingProcessor.process(hearing, messageId))
+                .then()
+                .toFuture();
     }
 }
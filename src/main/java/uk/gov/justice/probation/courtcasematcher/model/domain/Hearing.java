@@ -9,6 +9,7 @@ import lombok.Setter;
 import lombok.With;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -39,6 +40,9 @@ public class Hearing implements Serializable {
     private List<CaseMarker> caseMarkers;
     private LocalDateTime lastUpdated;
 
+    // When the message carrying this hearing was published, so that re-sends of the same hearing can be ordered
+    private Instant messageTimestamp;
+
     public boolean shouldMatchToOffender() {
         return defendants.stream()
                 .anyMatch(Defendant::shouldMatchToOffender);
@@ -17,6 +17,7 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.GroupedOffenderMatches;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.restclient.exception.HearingNotFoundException;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.courtcaseservice.CCSDefendant;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.courtcaseservice.CCSExtendedHearing;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.courtcaseservice.CCSGroupedOffenderMatchesRequest;
 
@@ -42,6 +43,8 @@ public class CourtCaseServiceClient {
 
     private static final String courtCaseByHearingIdTemplate = "/hearing/%s";
 
+    private static final String defendantByHearingIdTemplate = "/hearing/%s/defendants/%s";
+
     public Mono<Hearing> getHearing(String hearingId) {
         final String path = String.format(courtCaseByHearingIdTemplate, hearingId);
 
@@ -90,6 +93,20 @@ public class CourtCaseServiceClient {
                 .then();
     }
 
+    public Mono<Void> putDefendant(String hearingId, Defendant defendant) {
+        final var defendantId = defendant.getDefendantId();
+        final var path = String.format(defendantByHearingIdTemplate, hearingId, defendantId);
+        return restHelper.putObject(path, CCSDefendant.of(defendant), CCSDefendant.class)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSuccess(response -> log.debug("PUT succeeded for the defendant at {}", path))
+                .retryWhen(restHelper.buildRetrySpec(
+                        String.format("Initial retry failed for hearingId %s defendantId %s", hearingId, defendantId),
+                        (attemptNo, maxAttempts) -> String.format("Retry failed for hearingId %s defendantId %s at attempt %s of %s", hearingId, defendantId, attemptNo, maxAttempts))
+                )
+                .then();
+    }
+
     private Mono<Void> postOffenderMatches(String caseId, String defendantId, GroupedOffenderMatches offenderMatches) {
         if (offenderMatches == null) {
             return Mono.empty();
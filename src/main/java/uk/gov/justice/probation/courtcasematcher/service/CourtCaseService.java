@@ -5,15 +5,16 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.mapper.HearingMapper;
 import uk.gov.justice.probation.courtcasematcher.restclient.CourtCaseServiceClient;
-import uk.gov.justice.probation.courtcasematcher.restclient.OffenderSearchRestClient;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer.Stage;
 
-import java.util.stream.Collectors;
+import java.util.Collection;
 
 @Service
 @Slf4j
@@ -23,48 +24,66 @@ public class CourtCaseService {
 
     private CourtCaseServiceClient courtCaseServiceClient;
 
-    private OffenderSearchRestClient offenderSearchRestClient;
+    private OffenderSearchService offenderSearchService;
 
     private TelemetryService telemetryService;
 
+    private HearingStageTimer hearingStageTimer;
+
     public Mono<Hearing> findHearing(Hearing hearing) {
         if (hearing.getSource() == DataSource.COMMON_PLATFORM) {
-            return courtCaseServiceClient.getHearing(hearing.getHearingId(), hearing.getCaseId());
+            return hearingStageTimer.time(Stage.FIND_HEARING, courtCaseServiceClient.getHearing(hearing.getHearingId(), hearing.getCaseId()));
         }
-        return courtCaseServiceClient.getHearing(hearing.getCourtCode(), hearing.getCaseNo(), hearing.getListNo());
+        return hearingStageTimer.time(Stage.FIND_HEARING, courtCaseServiceClient.getHearing(hearing.getCourtCode(), hearing.getCaseNo(), hearing.getListNo()));
     }
 
-    public void saveHearing(Hearing hearing) {
-        Hearing updatedHearing = hearing;
-
-        // If this is a new case from COMMON platform, set caseNo = caseId
-        if (hearing.getSource() == DataSource.COMMON_PLATFORM && hearing.getCaseNo() == null) {
-            updatedHearing = hearing.withCaseNo(updatedHearing.getCaseId());
-        }
+    public Mono<Void> saveHearing(Hearing hearing) {
+        return Mono.defer(() -> {
+            // If this is a new case from COMMON platform, set caseNo = caseId
+            final var updatedHearing = hearing.getSource() == DataSource.COMMON_PLATFORM && hearing.getCaseNo() == null
+                    ? hearing.withCaseNo(hearing.getCaseId())
+                    : hearing;
 
-        courtCaseServiceClient.putHearing(updatedHearing)
-                .doOnError(throwable -> {
-                    log.error("Save court case failed for case id {} with {}", hearing.getCaseId(), throwable.getMessage());
-                    throw new RuntimeException(throwable.getMessage());
-                })
-                .block();
+            return hearingStageTimer.time(Stage.PUT_HEARING, courtCaseServiceClient.putHearing(updatedHearing))
+                    .onErrorMap(throwable -> {
+                        log.error("Save court case failed for case id {} with {}", hearing.getCaseId(), throwable.getMessage());
+                        return new RuntimeException(throwable.getMessage());
+                    })
+                    .then(hearingStageTimer.time(Stage.POST_MATCHES,
+                            Mono.defer(() -> courtCaseServiceClient.postOffenderMatches(updatedHearing.getCaseId(), updatedHearing.getDefendants()))));
+        });
+    }
 
-        courtCaseServiceClient.postOffenderMatches(updatedHearing.getCaseId(), updatedHearing.getDefendants())
-                .block();
+    /**
+     * Sends only the given defendants of an existing hearing, rather than the whole hearing, along with their offender
+     * matches.
+     */
+    public Mono<Void> saveDefendants(Hearing hearing, Collection<String> defendantIds) {
+        return Mono.defer(() -> {
+            final var defendants = hearing.getDefendants().stream()
+                    .filter(defendant -> defendantIds.contains(defendant.getDefendantId()))
+                    .toList();
 
+            return Flux.fromIterable(defendants)
+                    .concatMap(defendant -> hearingStageTimer.time(Stage.PUT_DEFENDANT, courtCaseServiceClient.putDefendant(hearing.getHearingId(), defendant)))
+                    .onErrorMap(throwable -> {
+                        log.error("Save defendants failed for case id {} with {}", hearing.getCaseId(), throwable.getMessage());
+                        return new RuntimeException(throwable.getMessage());
+                    })
+                    .then(hearingStageTimer.time(Stage.POST_MATCHES,
+                            Mono.defer(() -> courtCaseServiceClient.postOffenderMatches(hearing.getCaseId(), defendants))));
+        });
     }
-    public Mono<Hearing> updateProbationStatusDetail(Hearing hearing) {
-        final var updatedDefendants = hearing.getDefendants()
-                .stream()
-                .map(defendant -> defendant.getCrn() != null && defendant.getCprUUID() == null ? updateDefendant(defendant) : Mono.just(defendant))
-                .map(Mono::block)
-                .collect(Collectors.toList());
 
-        return Mono.just(hearing.withDefendants(updatedDefendants));
+    public Mono<Hearing> updateProbationStatusDetail(Hearing hearing) {
+        return Flux.fromIterable(hearing.getDefendants())
+                .concatMap(defendant -> defendant.getCrn() != null && defendant.getCprUUID() == null ? updateDefendant(defendant) : Mono.just(defendant))
+                .collectList()
+                .map(hearing::withDefendants);
     }
 
     public Mono<Defendant> updateDefendant(Defendant defendant) {
-        return offenderSearchRestClient.search(defendant.getCrn())
+        return hearingStageTimer.time(Stage.OFFENDER_SEARCH, offenderSearchService.search(defendant.getCrn()))
                 .filter(searchResponses -> searchResponses.getSearchResponses().size() == 1)
                 .map(searchResponses -> searchResponses.getSearchResponses().getFirst().getProbationStatusDetail())
                 .map(probationStatusDetail -> HearingMapper.merge(probationStatusDetail, defendant))
@@ -0,0 +1,79 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.restclient.CprServiceClient;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.cprservice.CprDefendant;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Fronts {@link CprServiceClient} with a cache of canonical records keyed by source and identifier. Found records
+ * and not-found results are held for separate TTLs, and concurrent lookups of the same defendant share a single
+ * call. Setting both TTLs to zero disables the cache.
+ */
+@Service
+public class CprCanonicalRecordService {
+
+    static final String CACHE_NAME = "cprCanonicalRecord";
+
+    private final CprServiceClient cprServiceClient;
+    private final AsyncCache<CprRecordKey, Optional<CprDefendant>> cache;
+
+    public CprCanonicalRecordService(CprServiceClient cprServiceClient,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${cpr-service.cache.ttl:0s}") Duration ttl,
+                                     @Value("${cpr-service.cache.not-found-ttl:0s}") Duration notFoundTtl,
+                                     @Value("${cpr-service.cache.max-size:10000}") long maxSize) {
+        this.cprServiceClient = cprServiceClient;
+        this.cache = ttl.isZero() && notFoundTtl.isZero() ? null : buildCache(meterRegistry, ttl, notFoundTtl, maxSize);
+    }
+
+    private static AsyncCache<CprRecordKey, Optional<CprDefendant>> buildCache(MeterRegistry meterRegistry, Duration ttl, Duration notFoundTtl, long maxSize) {
+        final AsyncCache<CprRecordKey, Optional<CprDefendant>> cache = Caffeine.newBuilder()
+                .expireAfter(Expiry.creating((CprRecordKey key, Optional<CprDefendant> record) -> record.isPresent() ? ttl : notFoundTtl))
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+        return cache;
+    }
+
+    public Mono<CprDefendant> getByLibraId(String cId) {
+        return get(new CprRecordKey(DataSource.LIBRA, cId));
+    }
+
+    public Mono<CprDefendant> getByCommonPlatformId(String defendantId) {
+        return get(new CprRecordKey(DataSource.COMMON_PLATFORM, defendantId));
+    }
+
+    private Mono<CprDefendant> get(CprRecordKey key) {
+        if (cache == null) {
+            return fetch(key);
+        }
+        // Errors other than a 404 fail the future, which Caffeine does not retain
+        return Mono.fromFuture(cache.get(key, (recordKey, executor) -> fetch(recordKey)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture()), true)
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<CprDefendant> fetch(CprRecordKey key) {
+        return switch (key.source()) {
+            case LIBRA -> cprServiceClient.getCprCanonicalRecordByLibraId(key.identifier());
+            case COMMON_PLATFORM -> cprServiceClient.getCprCanonicalRecordByCommonPlatformId(key.identifier());
+        };
+    }
+
+    record CprRecordKey(DataSource source, String identifier) {
+    }
+}
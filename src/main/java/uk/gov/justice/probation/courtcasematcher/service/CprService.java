@@ -1,10 +1,12 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Address;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
@@ -15,8 +17,6 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.Offender;
 import uk.gov.justice.probation.courtcasematcher.model.domain.OffenderMatch;
 import uk.gov.justice.probation.courtcasematcher.model.domain.ProbationStatusDetail;
 import uk.gov.justice.probation.courtcasematcher.model.type.MatchType;
-import uk.gov.justice.probation.courtcasematcher.restclient.CprServiceClient;
-import uk.gov.justice.probation.courtcasematcher.restclient.OffenderSearchRestClient;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.cprservice.CprAddress;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.cprservice.CprAlias;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.cprservice.CprDefendant;
@@ -24,6 +24,7 @@ import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.OtherIds;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponse;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponses;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer.Stage;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -33,32 +34,70 @@ import java.util.stream.Collectors;
 
 @Service
 @Slf4j
-@AllArgsConstructor(onConstructor_ = @Autowired)
 public class CprService {
 
-    private final CprServiceClient cprServiceClient;
-    private final OffenderSearchRestClient offenderSearchRestClient;
+    static final String DEFENDANT_ENRICHMENT_TIMER = "court_case_matcher.cpr.defendant.enrichment";
+
+    private final CprCanonicalRecordService cprCanonicalRecordService;
+    private final OffenderSearchService offenderSearchService;
+    private final MeterRegistry meterRegistry;
+    private final HearingStageTimer hearingStageTimer;
+    private final int maxConcurrentLookups;
+    private final int maxConcurrentOffenderSearches;
+
+    public CprService(CprCanonicalRecordService cprCanonicalRecordService,
+                      OffenderSearchService offenderSearchService,
+                      MeterRegistry meterRegistry,
+                      HearingStageTimer hearingStageTimer,
+                      @Value("${cpr-service.max-concurrent-lookups:8}") int maxConcurrentLookups,
+                      @Value("${cpr-service.max-concurrent-offender-searches:2}") int maxConcurrentOffenderSearches) {
+        this.cprCanonicalRecordService = cprCanonicalRecordService;
+        this.offenderSearchService = offenderSearchService;
+        this.meterRegistry = meterRegistry;
+        this.hearingStageTimer = hearingStageTimer;
+        this.maxConcurrentLookups = maxConcurrentLookups;
+        this.maxConcurrentOffenderSearches = maxConcurrentOffenderSearches;
+    }
 
-    public void updateDefendants(List<Defendant> defendants) {
-        defendants.stream()
+    /**
+     * Enriches all defendants of a hearing concurrently, at most maxConcurrentLookups at a time, and completes once
+     * every defendant has been resolved. Each defendant searches its CRNs at most maxConcurrentOffenderSearches at a
+     * time, so a hearing makes at most maxConcurrentLookups * (maxConcurrentOffenderSearches + 1) offender searches at
+     * once, the extra one being the exact match search.
+     */
+    public Mono<Void> updateDefendants(List<Defendant> defendants) {
+        return Flux.fromIterable(defendants)
             .filter(defendant -> defendant.getDefendantId() != null || defendant.getCId() != null)
-            .forEach(this::updateDefendant);
+            .flatMap(this::updateDefendant, maxConcurrentLookups)
+            .then()
+            .contextWrite(OffenderSearchService::openHearingScope);
+    }
+
+    public Mono<Defendant> updateDefendant(Defendant defendant) {
+        return Mono.defer(() -> {
+                final var sample = Timer.start(meterRegistry);
+                return lookupDefendant(defendant)
+                    .doFinally(signalType -> sample.stop(meterRegistry.timer(DEFENDANT_ENRICHMENT_TIMER)));
+            })
+            .contextWrite(OffenderSearchService::openHearingScope);
     }
 
-    public void updateDefendant(Defendant defendant) {
+    private Mono<Defendant> lookupDefendant(Defendant defendant) {
         Mono<CprDefendant> cprCanonicalRecord;
         if (defendant.getCId() != null) {
-            cprCanonicalRecord = cprServiceClient.getCprCanonicalRecordByLibraId(defendant.getCId());
+            cprCanonicalRecord = hearingStageTimer.time(Stage.CPR_LOOKUP, cprCanonicalRecordService.getByLibraId(defendant.getCId()));
         } else if (defendant.getDefendantId() != null) {
-            cprCanonicalRecord = cprServiceClient.getCprCanonicalRecordByCommonPlatformId(defendant.getDefendantId());
+            cprCanonicalRecord = hearingStageTimer.time(Stage.CPR_LOOKUP, cprCanonicalRecordService.getByCommonPlatformId(defendant.getDefendantId()));
         } else {
+            // Nothing to look up, so nothing is recorded against the CPR lookup stage
             cprCanonicalRecord = Mono.empty();
         }
-        cprCanonicalRecord.blockOptional()
-            .ifPresentOrElse(cprDefendant -> mapCprDefendantToDefendant(defendant, cprDefendant), () -> {});
+        return cprCanonicalRecord
+            .flatMap(cprDefendant -> mapCprDefendantToDefendant(defendant, cprDefendant))
+            .defaultIfEmpty(defendant);
     }
 
-    private void mapCprDefendantToDefendant(Defendant defendant, CprDefendant cprDefendant) {
+    private Mono<Defendant> mapCprDefendantToDefendant(Defendant defendant, CprDefendant cprDefendant) {
         defendant.setCprUUID(cprDefendant.getCprUUID());
         defendant.setName(Name.builder()
             .title(cprDefendant.getTitle().getDescription())
@@ -69,8 +108,11 @@ public class CprService {
         setDateOfBirth(defendant, cprDefendant);
         defendant.setSex(cprDefendant.getSex().getDescription());
         setLatestAddress(defendant, cprDefendant);
-        setDefendantDetailsWhenExactMatch(defendant, cprDefendant);
-        defendant.setGroupedOffenderMatches(buildGroupedOffenderMatch(cprDefendant));
+        defendant.setGroupedOffenderMatches(null);
+        return Mono.when(
+                setDefendantDetailsWhenExactMatch(defendant, cprDefendant),
+                buildGroupedOffenderMatch(cprDefendant).doOnNext(defendant::setGroupedOffenderMatches))
+            .thenReturn(defendant);
     }
 
     private void setDateOfBirth(Defendant defendant, CprDefendant cprDefendant) {
@@ -79,15 +121,17 @@ public class CprService {
         }
     }
 
-    public void setDefendantDetailsWhenExactMatch(Defendant defendant, CprDefendant cprDefendant) {
-        if(cprDefendant.getIdentifiers().getCrns().size() == 1) {
-            List<SearchResponse> searchResponses = offenderSearch(cprDefendant.getIdentifiers().getCrns().getFirst()).getSearchResponses();
-            if(searchResponses.size() == 1) {
-                searchResponses.forEach(searchResponse ->
-                    setDefendantProperties(searchResponse.getOtherIds(), searchResponse.getProbationStatusDetail(), defendant)
-                );
-            }
+    public Mono<Void> setDefendantDetailsWhenExactMatch(Defendant defendant, CprDefendant cprDefendant) {
+        if(cprDefendant.getIdentifiers().getCrns().size() != 1) {
+            return Mono.empty();
         }
+        return offenderSearch(cprDefendant.getIdentifiers().getCrns().getFirst())
+            .map(SearchResponses::getSearchResponses)
+            .filter(searchResponses -> searchResponses.size() == 1)
+            .doOnNext(searchResponses -> searchResponses.forEach(searchResponse ->
+                setDefendantProperties(searchResponse.getOtherIds(), searchResponse.getProbationStatusDetail(), defendant)
+            ))
+            .then();
     }
 
     private void setDefendantProperties(OtherIds otherIds, ProbationStatusDetail probationStatus, Defendant defendant) {
@@ -119,18 +163,22 @@ public class CprService {
             .build()));
     }
 
-    public GroupedOffenderMatches buildGroupedOffenderMatch(CprDefendant cprDefendant) {
-        if (!cprDefendant.getIdentifiers().getCrns().isEmpty()) {
-            return GroupedOffenderMatches.builder()
-                .matches(cprDefendant.getIdentifiers().getCrns().stream()
-                    .map(crn -> buildOffenderMatch(crn, cprDefendant.getAliases())).toList())
-                .build();
+    public Mono<GroupedOffenderMatches> buildGroupedOffenderMatch(CprDefendant cprDefendant) {
+        if (cprDefendant.getIdentifiers().getCrns().isEmpty()) {
+            return Mono.empty();
         }
-        return null;
+        return Flux.fromIterable(cprDefendant.getIdentifiers().getCrns())
+            .flatMapSequential(crn -> offenderSearch(crn)
+                .map(SearchResponses::getSearchResponses)
+                .defaultIfEmpty(List.of())
+                .map(searchResponses -> buildOffenderMatch(crn, cprDefendant.getAliases(), searchResponses)), maxConcurrentOffenderSearches)
+            .collectList()
+            .map(matches -> GroupedOffenderMatches.builder()
+                .matches(matches)
+                .build());
     }
 
-    private OffenderMatch buildOffenderMatch(String crn, List<CprAlias> aliases) {
-        List<SearchResponse> searchResponses = offenderSearch(crn).getSearchResponses();
+    private OffenderMatch buildOffenderMatch(String crn, List<CprAlias> aliases, List<SearchResponse> searchResponses) {
         OtherIds otherIds = !searchResponses.isEmpty() ? searchResponses.getFirst().getOtherIds() : null;
         return OffenderMatch.builder()
             .matchIdentifiers(MatchIdentifiers.builder()
@@ -159,7 +207,7 @@ public class CprService {
     }
 
 
-    private SearchResponses offenderSearch(String crn) {
-        return offenderSearchRestClient.search(crn).block();
+    private Mono<SearchResponses> offenderSearch(String crn) {
+        return hearingStageTimer.time(Stage.OFFENDER_SEARCH, offenderSearchService.search(crn));
     }
 }
@@ -0,0 +1,134 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Times each stage of processing a hearing, tagged by the hearing's source and court code so that slow stages can be
+ * traced to a feed or a court. Reactive stages take their tags from the subscriber context, which
+ * {@link #withHearingTags(Hearing)} sets once per hearing, so services that only see defendants are still tagged.
+ * <p>
+ * Each court code multiplies the series a timer publishes, so the percentile histogram is published on a separate
+ * {@value #STAGE_HISTOGRAM} timer tagged only by stage and source. The {@value #STAGE_TIMER} timer keeps the court
+ * code with just a count, total and max.
+ */
+@Component
+public class HearingStageTimer {
+
+    static final String STAGE_TIMER = "court_case_matcher.hearing.stage";
+    static final String STAGE_HISTOGRAM = "court_case_matcher.hearing.stage.latency";
+    private static final String COURT_CODE_TAG = "court_code";
+    static final String UNKNOWN = "UNKNOWN";
+    private static final Object TAGS_KEY = HearingStageTimer.class;
+    private static final Tags UNKNOWN_TAGS = tags(UNKNOWN, UNKNOWN);
+
+    public enum Stage {
+        SNS_PARSE,
+        S3_FETCH,
+        DOMAIN_MAPPING,
+        FIND_HEARING,
+        COMPARISON,
+        CPR_LOOKUP,
+        OFFENDER_SEARCH,
+        PUT_HEARING,
+        PUT_DEFENDANT,
+        POST_MATCHES
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public HearingStageTimer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static Context withHearingTags(Context context, Hearing hearing) {
+        return context.put(TAGS_KEY, tags(hearing));
+    }
+
+    public static Function<Context, Context> withHearingTags(Hearing hearing) {
+        return context -> withHearingTags(context, hearing);
+    }
+
+    public <T> Mono<T> time(Stage stage, Mono<T> mono) {
+        return Mono.deferContextual(context -> {
+            final var sample = Timer.start(meterRegistry);
+            final Tags tags = context.getOrDefault(TAGS_KEY, UNKNOWN_TAGS);
+            return mono.doFinally(signalType -> stop(sample, stage, tags));
+        });
+    }
+
+    public <T> T time(Stage stage, Hearing hearing, Supplier<T> supplier) {
+        final var sample = start();
+        try {
+            return supplier.get();
+        } finally {
+            stop(sample, stage, hearing);
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stops a sample for a stage that runs before the hearing is known, such as reading the message it came in.
+     */
+    public void stop(Timer.Sample sample, Stage stage, DataSource source, String courtCode) {
+        stop(sample, stage, tags(Optional.ofNullable(source).map(DataSource::name).orElse(UNKNOWN), courtCode));
+    }
+
+    public void stop(Timer.Sample sample, Stage stage, Hearing hearing) {
+        stop(sample, stage, tags(hearing));
+    }
+
+    private void stop(Timer.Sample sample, Stage stage, Tags tags) {
+        final var durationNanos = sample.stop(timer(stage, tags));
+        histogram(stage, tags).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Stage stage, Tags tags) {
+        return Timer.builder(STAGE_TIMER)
+                .tag("stage", stage.name().toLowerCase())
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    private Timer histogram(Stage stage, Tags tags) {
+        return Timer.builder(STAGE_HISTOGRAM)
+                .tag("stage", stage.name().toLowerCase())
+                .tags(tags.stream().filter(tag -> !COURT_CODE_TAG.equals(tag.getKey())).toList())
+                .publishPercentileHistogram()
+                // Bounds the histogram buckets to the range a stage can plausibly take
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    public static String courtCode(Hearing hearing) {
+        return Optional.ofNullable(hearing.getHearingDays())
+                .flatMap(hearingDays -> hearingDays.stream().findFirst())
+                .map(HearingDay::getCourtCode)
+                .orElse(UNKNOWN);
+    }
+
+    private static Tags tags(Hearing hearing) {
+        return tags(Optional.ofNullable(hearing.getSource()).map(DataSource::name).orElse(UNKNOWN), courtCode(hearing));
+    }
+
+    private static Tags tags(String source, String courtCode) {
+        return Tags.of("source", source, COURT_CODE_TAG, Optional.ofNullable(courtCode).orElse(UNKNOWN));
+    }
+}
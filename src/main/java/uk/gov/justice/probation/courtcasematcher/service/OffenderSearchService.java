@@ -0,0 +1,104 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import uk.gov.justice.probation.courtcasematcher.restclient.OffenderSearchRestClient;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponses;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fronts {@link OffenderSearchRestClient#search(String)}. When a hearing scope has been opened on the subscriber
+ * context, each CRN is only searched once for the lifetime of that scope and later callers share the same result.
+ * Results are also held in a shared cache for a short TTL, unless the caller has opted out with
+ * {@link #bypassSharedCache(Context)}. A TTL of zero disables the shared cache.
+ */
+@Service
+@Slf4j
+public class OffenderSearchService {
+
+    static final String SEARCHES_SAVED_COUNTER = "court_case_matcher.offender_search.searches_saved";
+    static final String SHARED_CACHE_NAME = "offenderSearch";
+    private static final String HEARING_SCOPE_KEY = OffenderSearchService.class.getName() + ".hearingScope";
+    private static final String BYPASS_SHARED_CACHE_KEY = OffenderSearchService.class.getName() + ".bypassSharedCache";
+
+    private final OffenderSearchRestClient offenderSearchRestClient;
+    private final Counter searchesSaved;
+    private final AsyncCache<String, SearchResponses> sharedCache;
+
+    public OffenderSearchService(OffenderSearchRestClient offenderSearchRestClient,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${offender-search.cache.ttl:0s}") Duration cacheTtl,
+                                 @Value("${offender-search.cache.max-size:10000}") long cacheMaxSize) {
+        this.offenderSearchRestClient = offenderSearchRestClient;
+        this.searchesSaved = meterRegistry.counter(SEARCHES_SAVED_COUNTER);
+        this.sharedCache = cacheTtl.isZero() ? null : buildSharedCache(meterRegistry, cacheTtl, cacheMaxSize);
+    }
+
+    private static AsyncCache<String, SearchResponses> buildSharedCache(MeterRegistry meterRegistry, Duration ttl, long maxSize) {
+        final AsyncCache<String, SearchResponses> cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), SHARED_CACHE_NAME);
+        return cache;
+    }
+
+    /**
+     * Opens a hearing scope for use with {@link Mono#contextWrite}. An already open scope is kept, so nested
+     * callers share the outermost one.
+     */
+    public static Context openHearingScope(Context context) {
+        if (context.hasKey(HEARING_SCOPE_KEY)) {
+            return context;
+        }
+        return context.put(HEARING_SCOPE_KEY, new ConcurrentHashMap<String, Mono<SearchResponses>>());
+    }
+
+    /**
+     * For use with {@link Mono#contextWrite} where fresh probation status is needed, e.g. when updating an existing
+     * hearing. Searches still go through the hearing scope if one is open.
+     */
+    public static Context bypassSharedCache(Context context) {
+        return context.put(BYPASS_SHARED_CACHE_KEY, true);
+    }
+
+    public Mono<SearchResponses> search(String crn) {
+        return Mono.deferContextual(context -> {
+            final boolean useSharedCache = !context.<Boolean>getOrDefault(BYPASS_SHARED_CACHE_KEY, false);
+            return context.<Map<String, Mono<SearchResponses>>>getOrEmpty(HEARING_SCOPE_KEY)
+                    .map(searches -> searchOnce(searches, crn, useSharedCache))
+                    .orElseGet(() -> fetch(crn, useSharedCache));
+        });
+    }
+
+    private Mono<SearchResponses> fetch(String crn, boolean useSharedCache) {
+        if (sharedCache == null || !useSharedCache) {
+            return offenderSearchRestClient.search(crn);
+        }
+        // Empty and failed searches complete the future with null or an error, which Caffeine does not retain
+        return Mono.fromFuture(sharedCache.get(crn, (key, executor) -> offenderSearchRestClient.search(key).toFuture()), true);
+    }
+
+    private Mono<SearchResponses> searchOnce(Map<String, Mono<SearchResponses>> searches, String crn, boolean useSharedCache) {
+        final var search = Mono.defer(() -> fetch(crn, useSharedCache)).cache();
+        final var existingSearch = searches.putIfAbsent(crn, search);
+        if (existingSearch != null) {
+            log.debug("Reusing offender search for crn {}", crn);
+            searchesSaved.increment();
+            return existingSearch;
+        }
+        return search;
+    }
+}
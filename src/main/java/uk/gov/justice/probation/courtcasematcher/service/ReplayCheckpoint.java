@@ -0,0 +1,108 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.HexFormat;
+
+/**
+ * Records which entries of a replay have finished, by their position in the replay, in a local file named after the
+ * replay. A replay that is interrupted and started again skips the entries that finished the first time. The file is
+ * deleted once every entry has finished.
+ */
+@Slf4j
+class ReplayCheckpoint implements AutoCloseable {
+
+    // Positions are written to the file as they finish but only forced to disk this often
+    private static final int FORCE_EVERY = 100;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BitSet completed = new BitSet();
+    private int unforced;
+
+    private ReplayCheckpoint(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (var lines = Files.lines(file, StandardCharsets.US_ASCII)) {
+                // A line cut short by a crash is ignored, so that entry is replayed again
+                lines.filter(line -> !line.isBlank() && line.chars().allMatch(Character::isDigit))
+                        .mapToInt(Integer::parseInt)
+                        .forEach(completed::set);
+            }
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Start on a new line in case the last one was cut short
+        channel.write(ByteBuffer.wrap("\n".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    static ReplayCheckpoint open(Path directory, String replayName) throws IOException {
+        Files.createDirectories(directory);
+        return new ReplayCheckpoint(directory.resolve(fileName(replayName)));
+    }
+
+    synchronized boolean isCompleted(long position) {
+        return completed.get(Math.toIntExact(position));
+    }
+
+    synchronized int getCompletedCount() {
+        return completed.cardinality();
+    }
+
+    synchronized void markCompleted(long position) {
+        completed.set(Math.toIntExact(position));
+        try {
+            channel.write(ByteBuffer.wrap((position + "\n").getBytes(StandardCharsets.US_ASCII)));
+            if (++unforced >= FORCE_EVERY) {
+                channel.force(false);
+                unforced = 0;
+            }
+        } catch (IOException e) {
+            // Losing the checkpoint only means the entry is replayed again if the replay is restarted
+            log.warn("Failed to write replay checkpoint {}", file, e);
+        }
+    }
+
+    /**
+     * Closes and deletes the checkpoint, once the whole replay has finished.
+     */
+    synchronized void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete replay checkpoint {}", file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close replay checkpoint {}", file, e);
+        }
+    }
+
+    private static String fileName(String replayName) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256").digest(replayName.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + ".checkpoint";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
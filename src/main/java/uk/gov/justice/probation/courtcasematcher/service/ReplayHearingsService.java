@@ -1,137 +1,202 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
-import software.amazon.awssdk.services.s3.S3Client;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
-import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import uk.gov.justice.probation.courtcasematcher.controller.Hearing404;
+import uk.gov.justice.probation.courtcasematcher.messaging.CommonPlatformHearingReader;
 import uk.gov.justice.probation.courtcasematcher.messaging.HearingProcessor;
-import uk.gov.justice.probation.courtcasematcher.messaging.MessageParser;
-import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.restclient.CourtCaseServiceClient;
 
-import java.lang.System.Logger.Level;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+/**
+ * Replays Common Platform hearings that court-case-service returned a 404 for. Entries are looked up a window at a
+ * time, so that those court-case-service already has a later version of are discarded before any S3 work is scheduled.
+ * The rest are processed several at a time, with the S3 payloads of upcoming entries fetched ahead of processing. Calls to court-case-service
+ * and S3 are each rate limited, and finished entries are checkpointed so an interrupted replay can be resumed.
+ */
 @Slf4j
 @Service
 public class ReplayHearingsService {
 
 
     private final CourtCaseServiceClient courtCaseServiceClient;
-    private final S3Client s3Client;
+    private final S3PayloadCache s3PayloadCache;
     private final String bucketName;
-    private final MessageParser<CPHearingEvent> commonPlatformParser;
+    private final CommonPlatformHearingReader commonPlatformHearingReader;
     private final HearingProcessor hearingProcessor;
     private final boolean dryRunEnabled;
     private final TelemetryService telemetryService;
+    private final int parallelism;
+    private final int s3Prefetch;
+    private final int prefilterWindowSize;
+    private final ReplayRateLimiter courtCaseServiceRateLimiter;
+    private final ReplayRateLimiter s3RateLimiter;
+    private final Path checkpointDirectory;
 
     public ReplayHearingsService(
         CourtCaseServiceClient courtCaseServiceClient,
-        final S3Client s3Client,
+        final S3PayloadCache s3PayloadCache,
         @Value("${crime-portal-gateway-s3-bucket}") String bucketName,
-        final MessageParser<CPHearingEvent> commonPlatformParser,
+        final CommonPlatformHearingReader commonPlatformHearingReader,
         final HearingProcessor hearingProcessor,
-        @Value("${replay404.dry-run}") boolean dryRunEnabled, TelemetryService telemetryService) {
+        @Value("${replay404.dry-run}") boolean dryRunEnabled, TelemetryService telemetryService,
+        @Value("${replay404.parallelism:4}") int parallelism,
+        @Value("${replay404.s3-prefetch:8}") int s3Prefetch,
+        @Value("${replay404.prefilter.window-size:50}") int prefilterWindowSize,
+        @Value("${replay404.rate-limit.court-case-service:0}") int courtCaseServiceRateLimit,
+        @Value("${replay404.rate-limit.s3:0}") int s3RateLimit,
+        @Value("${replay404.checkpoint.directory}") String checkpointDirectory) {
 
         this.courtCaseServiceClient = courtCaseServiceClient;
-        this.s3Client = s3Client;
+        this.s3PayloadCache = s3PayloadCache;
         this.bucketName = bucketName;
-        this.commonPlatformParser = commonPlatformParser;
+        this.commonPlatformHearingReader = commonPlatformHearingReader;
         this.hearingProcessor = hearingProcessor;
         this.dryRunEnabled = dryRunEnabled;
         this.telemetryService = telemetryService;
+        this.parallelism = parallelism;
+        this.s3Prefetch = s3Prefetch;
+        this.prefilterWindowSize = prefilterWindowSize;
+        this.courtCaseServiceRateLimiter = new ReplayRateLimiter(courtCaseServiceRateLimit);
+        this.s3RateLimiter = new ReplayRateLimiter(s3RateLimit);
+        this.checkpointDirectory = Paths.get(checkpointDirectory);
     }
 
-
-    @NotNull
-    public Supplier<String> replay(List<Hearing404> hearingsWith404) {
-        return () -> {
-            int numberToProcess = hearingsWith404.size();
-            log.info("Total number of hearings {}", numberToProcess);
-            int count = 0;
-            for (Hearing404 hearing : hearingsWith404) {
-                try {
-                    String id = hearing.getId();
-                    String s3Path = hearing.getS3Path();
-                    LocalDateTime received = hearing.getReceived().plusHours(1); // THIS IS UTC and therefore 1 hour behind the time in the S3 path
-
-                    courtCaseServiceClient.getHearing(id).blockOptional().ifPresentOrElse(
-                        (existingHearing) -> {
-                            // check court-case-service and compare the last updated date with the inputted-hearing
-
-                            // existingHearing.getLastUpdated() is using UK timezone (BST)
-                            if (existingHearing.getLastUpdated().isBefore(received)) {
-                                log.info("Processing hearing {} as it has not been updated since {}", id, existingHearing.getLastUpdated());
-                                processNewOrUpdatedHearing(s3Path);
-                            } else {
-                                log.info("Discarding hearing {} as we have a later version of it on {}", id, existingHearing.getLastUpdated());
-                                trackHearingProcessedEvent(id, Replay404HearingProcessStatus.OUTDATED, Collections.emptyMap());
-                            }
-                        },
-                        () -> {
-                            log.info("Processing new hearing {}", id);
-                            processNewOrUpdatedHearing(s3Path);
+    /**
+     * Replays the given hearings as they arrive, skipping any that finished in an earlier, interrupted replay with the
+     * same job name. Hearings are identified in the checkpoint by their position, so a resumed replay must be given the
+     * same hearings in the same order. Progress is recorded on the job, and no new hearings are started while it is
+     * paused.
+     */
+    Mono<Void> replay(ReplayJob job, Flux<Hearing404> hearingsWith404) {
+        return Mono.using(() -> ReplayCheckpoint.open(checkpointDirectory, job.getName()),
+            checkpoint -> {
+                final var count = new AtomicInteger(checkpoint.getCompletedCount());
+                log.info("Starting replay {}, {} hearings were processed by an earlier replay", job.getId(), count.get());
+                job.resumedFromCheckpoint(count.get());
+                final var progress = new Progress(checkpoint, count, new AtomicInteger(), job);
+
+                return hearingsWith404
+                    .index()
+                    .filter(entry -> !checkpoint.isCompleted(entry.getT1()))
+                    .delayUntil(entry -> job.whenRunning())
+                    .map(entry -> new ReplayEntry(entry.getT1(), entry.getT2(), null))
+                    // A whole window is looked up at once, and the next window starts when the slowest lookup finishes
+                    .buffer(prefilterWindowSize)
+                    .concatMap(window -> Flux.fromIterable(window)
+                        .flatMap(entry -> timed(job, ReplayJob.Stage.LOOKUP, () -> lookup(entry, progress))
+                            .onErrorResume(e -> failed(entry, e, progress)), prefilterWindowSize), 1)
+                    // Fetches run ahead of processing, so the next payloads are ready when a processing slot frees up
+                    .flatMap(entry -> timed(job, ReplayJob.Stage.FETCH, () -> fetch(entry))
+                        .onErrorResume(e -> failed(entry, e, progress)), s3Prefetch)
+                    .flatMap(entry -> timed(job, ReplayJob.Stage.PROCESS, () -> process(entry, progress))
+                        .onErrorResume(e -> failed(entry, e, progress)), parallelism)
+                    .then()
+                    .doOnSuccess(ignored -> {
+                        log.info("Processing complete. {} processed", count.get());
+                        // Failed hearings aren't checkpointed, so the checkpoint is kept for a re-upload to retry them
+                        if (progress.failed().get() == 0) {
+                            checkpoint.delete();
+                        } else {
+                            log.warn("{} hearings failed, upload the same file again to retry them", progress.failed().get());
                         }
-                    );
-                } catch (ConstraintViolationException e) {
-                    log.info("Discarding hearing {} as it is not in the correct format", hearing.getId());
-                    trackHearingProcessedEvent(hearing.getId(), Replay404HearingProcessStatus.INVALID, Map.of("reason", e.getMessage()));
-                } catch (Exception e) {
-                    log.error("Error processing hearing with id {}", hearing.getId());
-                    try {
-                        log.error(e.getMessage());
-                        trackHearingProcessedEvent(hearing.getId(), Replay404HearingProcessStatus.FAILED,  Map.of("reason", e.getMessage()));
-                    } catch(Exception ex) {
-                        log.error(Level.ERROR.name(), "Unknown", ex);
-                        trackHearingProcessedEvent(hearing.getId(), Replay404HearingProcessStatus.FAILED,  Map.of("reason", "Unknown"));
-                    }
-
+                    });
+            },
+            ReplayCheckpoint::close);
+    }
 
-                } finally {
-                    log.info("Processed hearing number {} of {}", ++count, numberToProcess);
-                }
-            }
-            log.info("Processing complete. {} of {} processed", count, numberToProcess);
+    private Mono<ReplayEntry> lookup(ReplayEntry entry, Progress progress) {
+        final var id = entry.hearing404().getId();
+        final var received = entry.hearing404().getReceived().plusHours(1); // THIS IS UTC and therefore 1 hour behind the time in the S3 path
+
+        return courtCaseServiceRateLimiter.acquire()
+            .then(Mono.defer(() -> courtCaseServiceClient.getHearing(id)))
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(existing -> existing.map(existingHearing -> {
+                    // check court-case-service and compare the last updated date with the inputted-hearing
+
+                    // existingHearing.getLastUpdated() is using UK timezone (BST)
+                    if (existingHearing.getLastUpdated().isBefore(received)) {
+                        log.info("Processing hearing {} as it has not been updated since {}", id, existingHearing.getLastUpdated());
+                        return Mono.just(entry);
+                    }
+                    log.info("Discarding hearing {} as we have a later version of it on {}", id, existingHearing.getLastUpdated());
+                    return finished(entry, Replay404HearingProcessStatus.OUTDATED, Collections.emptyMap(), progress);
+                })
+                .orElseGet(() -> {
+                    log.info("Processing new hearing {}", id);
+                    return Mono.just(entry);
+                }));
+    }
 
-            return "Finished!";
-        };
+    private Mono<ReplayEntry> fetch(ReplayEntry entry) {
+        return s3RateLimiter.acquire()
+            // Parsed straight from the S3 response or the local copy, rather than loaded into a String first
+            .then(Mono.fromCallable(() -> entry.withHearings(
+                    s3PayloadCache.getObject(bucketName, entry.hearing404().getS3Path(), commonPlatformHearingReader::read)))
+                .subscribeOn(Schedulers.boundedElastic()));
     }
 
-    private void processNewOrUpdatedHearing(String s3Path) {
-        String message = s3Client.getObjectAsBytes(GetObjectRequest.builder().bucket(bucketName).key(s3Path).build()).asString(StandardCharsets.UTF_8);
-        CPHearingEvent cpHearingEvent;
-        try {
-            cpHearingEvent = commonPlatformParser.parseMessage(message, CPHearingEvent.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
-        final var hearings = cpHearingEvent.asDomain()
+    private Mono<ReplayEntry> process(ReplayEntry entry, Progress progress) {
+        final var hearingId = entry.hearing404().getId();
+        final var hearings = entry.hearings()
             .stream()
-            .map(h -> h.withHearingId(cpHearingEvent.getHearing().getId())
-                .withHearingEventType("ConfirmedOrUpdated"))
+            .map(h -> h.withHearingEventType("ConfirmedOrUpdated"))
             .toList();
 
         if (dryRunEnabled) {
-            log.info("Dry run - processNewOrUpdatedHearing for hearing: {}", cpHearingEvent.getHearing().getId());
-            trackHearingProcessedEvent(cpHearingEvent.getHearing().getId(), Replay404HearingProcessStatus.SUCCEEDED, Collections.emptyMap());
-        } else {
-            hearings.forEach(hearing -> {
-                hearingProcessor.process(hearing, "pic4207-data-fix");
-                log.info("Successfully processed hearing for hearing: {}", cpHearingEvent.getHearing().getId());
-                trackHearingProcessedEvent(cpHearingEvent.getHearing().getId(), Replay404HearingProcessStatus.SUCCEEDED, Collections.emptyMap());
-            });
+            log.info("Dry run - processNewOrUpdatedHearing for hearing: {}", hearingId);
+            return finished(entry, Replay404HearingProcessStatus.SUCCEEDED, Collections.emptyMap(), progress);
+        }
+        return Flux.fromIterable(hearings)
+            .concatMap(hearing -> courtCaseServiceRateLimiter.acquire()
+                .then(Mono.defer(() -> hearingProcessor.process(hearing, "pic4207-data-fix")))
+                .then(Mono.fromRunnable(() -> {
+                    log.info("Successfully processed hearing for hearing: {}", hearingId);
+                    trackHearingProcessedEvent(hearingId, Replay404HearingProcessStatus.SUCCEEDED, Collections.emptyMap());
+                })))
+            .then(Mono.fromRunnable(() -> progress.completed(entry, Replay404HearingProcessStatus.SUCCEEDED)));
+    }
+
+    private static Mono<ReplayEntry> timed(ReplayJob job, ReplayJob.Stage stage, Supplier<Mono<ReplayEntry>> mono) {
+        return Mono.defer(() -> {
+            final var start = System.nanoTime();
+            return mono.get().doFinally(signalType -> job.recordStage(stage, Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    private Mono<ReplayEntry> failed(ReplayEntry entry, Throwable e, Progress progress) {
+        final var hearingId = entry.hearing404().getId();
+        if (e instanceof ConstraintViolationException) {
+            log.info("Discarding hearing {} as it is not in the correct format", hearingId);
+            return finished(entry, Replay404HearingProcessStatus.INVALID, Map.of("reason", e.getMessage()), progress);
         }
+        log.error("Error processing hearing with id {}", hearingId, e);
+        return finished(entry, Replay404HearingProcessStatus.FAILED, Map.of("reason", Optional.ofNullable(e.getMessage()).orElse("Unknown")), progress);
+    }
+
+    private Mono<ReplayEntry> finished(ReplayEntry entry, Replay404HearingProcessStatus status, Map<String, String> additionalProperties, Progress progress) {
+        return Mono.fromRunnable(() -> {
+            trackHearingProcessedEvent(entry.hearing404().getId(), status, additionalProperties);
+            progress.completed(entry, status);
+        });
     }
 
     private void trackHearingProcessedEvent(String hearingId, Replay404HearingProcessStatus status, Map<String, String> additionalProperties) {
@@ -149,4 +214,23 @@ public class ReplayHearingsService {
         properties.putAll(additionalProperties);
         return properties;
     }
+
+    private record ReplayEntry(long position, Hearing404 hearing404, List<Hearing> hearings) {
+        ReplayEntry withHearings(List<Hearing> hearings) {
+            return new ReplayEntry(position, hearing404, hearings);
+        }
+    }
+
+    private record Progress(ReplayCheckpoint checkpoint, AtomicInteger count, AtomicInteger failed, ReplayJob job) {
+        void completed(ReplayEntry entry, Replay404HearingProcessStatus status) {
+            // Failures may be transient, so they are left out of the checkpoint and retried by a resumed replay
+            if (status == Replay404HearingProcessStatus.FAILED) {
+                failed.incrementAndGet();
+            } else {
+                checkpoint.markCompleted(entry.position());
+            }
+            job.recordStatus(status);
+            log.info("Processed hearing number {}", count.incrementAndGet());
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A running or finished replay of 404 hearings, which can be paused, resumed and cancelled while it runs. Pausing stops
+ * new hearings from starting while those already in progress finish. Progress is recorded here as the replay runs.
+ */
+@Slf4j
+public class ReplayJob {
+
+    public enum State {
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    public enum Stage {
+        LOOKUP,
+        FETCH,
+        PROCESS
+    }
+
+    // The current rate is the average over this many seconds
+    static final int RATE_WINDOW_SECONDS = 60;
+
+    @Getter
+    private final String id;
+    @Getter
+    private final String name;
+    @Getter
+    private final Instant startedAt;
+    private final long expectedTotal;
+    private final Clock clock;
+    private final Supplier<List<String>> malformedLines;
+    private final IntSupplier malformedLineCount;
+
+    private final Map<Replay404HearingProcessStatus, LongAdder> statusCounts = new EnumMap<>(Replay404HearingProcessStatus.class);
+    private final Map<Stage, StageLatency> stageLatencies = new EnumMap<>(Stage.class);
+    private final long[] completedPerSecond = new long[RATE_WINDOW_SECONDS];
+    private final long[] completedSecond = new long[RATE_WINDOW_SECONDS];
+
+    private State state = State.RUNNING;
+    private Sinks.Empty<Void> resumed;
+    private Disposable subscription;
+    private Instant finishedAt;
+    private long resumedFromCheckpoint;
+
+    ReplayJob(String id, String name, long expectedTotal, Supplier<List<String>> malformedLines, IntSupplier malformedLineCount, Clock clock) {
+        this.id = id;
+        this.name = name;
+        this.expectedTotal = expectedTotal;
+        this.malformedLines = malformedLines;
+        this.malformedLineCount = malformedLineCount;
+        this.clock = clock;
+        this.startedAt = clock.instant();
+        Arrays.stream(Replay404HearingProcessStatus.values()).forEach(status -> statusCounts.put(status, new LongAdder()));
+        Arrays.stream(Stage.values()).forEach(stage -> stageLatencies.put(stage, new StageLatency()));
+    }
+
+    /**
+     * Completes straight away while the job is running, or once it is resumed while it is paused.
+     */
+    Mono<Void> whenRunning() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                return state == State.PAUSED ? resumed.asMono() : Mono.<Void>empty();
+            }
+        });
+    }
+
+    synchronized void start(Mono<Void> replay) {
+        subscription = replay.subscribe(null,
+            e -> {
+                log.error("Replay of 404 hearings {} failed", id, e);
+                finish(State.FAILED);
+            },
+            () -> {
+                finish(State.COMPLETED);
+                if (malformedLineCount.getAsInt() > 0) {
+                    log.warn("Skipped {} malformed 404 hearings: {}", malformedLineCount.getAsInt(), malformedLines.get());
+                }
+            });
+    }
+
+    public synchronized boolean pause() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        resumed = Sinks.empty();
+        state = State.PAUSED;
+        log.info("Paused replay of 404 hearings {}", id);
+        return true;
+    }
+
+    public synchronized boolean resume() {
+        if (state != State.PAUSED) {
+            return false;
+        }
+        state = State.RUNNING;
+        resumed.tryEmitEmpty();
+        log.info("Resumed replay of 404 hearings {}", id);
+        return true;
+    }
+
+    public boolean cancel() {
+        final Disposable toDispose;
+        synchronized (this) {
+            if (isFinished()) {
+                return false;
+            }
+            finish(State.CANCELLED);
+            if (resumed != null) {
+                resumed.tryEmitEmpty();
+            }
+            toDispose = subscription;
+        }
+        // The checkpoint is kept, so uploading the same file again carries on from here
+        if (toDispose != null) {
+            toDispose.dispose();
+        }
+        log.info("Cancelled replay of 404 hearings {}", id);
+        return true;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    synchronized boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    synchronized void resumedFromCheckpoint(long completed) {
+        resumedFromCheckpoint = completed;
+    }
+
+    void recordStatus(Replay404HearingProcessStatus status) {
+        statusCounts.get(status).increment();
+        final var second = clock.instant().getEpochSecond();
+        final var bucket = (int) (second % RATE_WINDOW_SECONDS);
+        synchronized (completedPerSecond) {
+            if (completedSecond[bucket] != second) {
+                completedSecond[bucket] = second;
+                completedPerSecond[bucket] = 0;
+            }
+            completedPerSecond[bucket]++;
+        }
+    }
+
+    void recordStage(Stage stage, Duration duration) {
+        stageLatencies.get(stage).record(duration);
+    }
+
+    public ReplayJobSummary summary() {
+        final Map<Replay404HearingProcessStatus, Long> counts = new EnumMap<>(Replay404HearingProcessStatus.class);
+        statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        final var completed = counts.values().stream().mapToLong(Long::longValue).sum();
+        final var rate = currentRate();
+
+        final Map<Stage, ReplayJobSummary.StageLatencySummary> latencies = new EnumMap<>(Stage.class);
+        stageLatencies.forEach((stage, latency) -> latencies.put(stage, latency.summary()));
+
+        synchronized (this) {
+            final var remaining = Math.max(0, expectedTotal - resumedFromCheckpoint - completed - malformedLineCount.getAsInt());
+            return ReplayJobSummary.builder()
+                .id(id)
+                .name(name)
+                .state(state)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .expectedTotal(expectedTotal)
+                .resumedFromCheckpoint(resumedFromCheckpoint)
+                .statusCounts(counts)
+                .malformedLineCount(malformedLineCount.getAsInt())
+                .malformedLines(malformedLines.get())
+                .ratePerSecond(rate)
+                .estimatedTimeRemaining(state == State.RUNNING && rate > 0 ? Duration.ofSeconds((long) Math.ceil(remaining / rate)) : null)
+                .stageLatencies(latencies)
+                .build();
+        }
+    }
+
+    /**
+     * Hearings finished per second, over the last RATE_WINDOW_SECONDS or since the job started if that is sooner.
+     */
+    double currentRate() {
+        final var now = clock.instant();
+        final var nowSecond = now.getEpochSecond();
+        long total = 0;
+        synchronized (completedPerSecond) {
+            for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+                // The current second is still filling up, so it is left out
+                if (completedSecond[i] < nowSecond && completedSecond[i] >= nowSecond - RATE_WINDOW_SECONDS) {
+                    total += completedPerSecond[i];
+                }
+            }
+        }
+        final var window = Math.min(RATE_WINDOW_SECONDS, nowSecond - startedAt.getEpochSecond());
+        return window <= 0 ? 0 : (double) total / window;
+    }
+
+    private synchronized void finish(State finalState) {
+        if (isFinished()) {
+            return;
+        }
+        state = finalState;
+        finishedAt = clock.instant();
+    }
+
+    private static class StageLatency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private volatile long maxNanos;
+
+        void record(Duration duration) {
+            final var nanos = duration.toNanos();
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos) {
+                synchronized (this) {
+                    maxNanos = Math.max(maxNanos, nanos);
+                }
+            }
+        }
+
+        ReplayJobSummary.StageLatencySummary summary() {
+            final var calls = count.sum();
+            return new ReplayJobSummary.StageLatencySummary(calls,
+                calls == 0 ? 0 : totalNanos.sum() / calls / 1_000_000.0,
+                maxNanos / 1_000_000.0);
+        }
+    }
+}
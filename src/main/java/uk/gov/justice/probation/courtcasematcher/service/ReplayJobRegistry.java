@@ -0,0 +1,79 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import uk.gov.justice.probation.courtcasematcher.controller.Hearing404;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the 404 hearing replays started since the application started, so that they can be inspected and
+ * controlled. Only the most recent finished replays are kept.
+ */
+@Component
+public class ReplayJobRegistry {
+
+    private final ReplayHearingsService replayHearingsService;
+    private final int maxFinishedJobs;
+    private final Clock clock;
+    private final Map<String, ReplayJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReplayJobRegistry(ReplayHearingsService replayHearingsService,
+                             @Value("${replay404.max-finished-jobs:20}") int maxFinishedJobs) {
+        this(replayHearingsService, maxFinishedJobs, Clock.systemUTC());
+    }
+
+    ReplayJobRegistry(ReplayHearingsService replayHearingsService, int maxFinishedJobs, Clock clock) {
+        this.replayHearingsService = replayHearingsService;
+        this.maxFinishedJobs = maxFinishedJobs;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts replaying the given hearings in the background, unless a replay with the same name is still running or
+     * paused. Replays with the same name share a checkpoint, so only one can run at a time.
+     *
+     * @param expectedTotal roughly how many hearings there are, for estimating how long the replay will take
+     * @return the new job, or empty if a replay with the same name hasn't finished
+     */
+    public synchronized Optional<ReplayJob> start(String name, Flux<Hearing404> hearings, long expectedTotal,
+                                                  Supplier<List<String>> malformedLines, IntSupplier malformedLineCount) {
+        if (jobs.values().stream().anyMatch(job -> job.getName().equals(name) && !job.isFinished())) {
+            return Optional.empty();
+        }
+        removeOldFinishedJobs();
+        final var job = new ReplayJob(UUID.randomUUID().toString(), name, expectedTotal, malformedLines, malformedLineCount, clock);
+        jobs.put(job.getId(), job);
+        job.start(replayHearingsService.replay(job, hearings));
+        return Optional.of(job);
+    }
+
+    public List<ReplayJob> getJobs() {
+        return jobs.values().stream()
+            .sorted(Comparator.comparing(ReplayJob::getStartedAt).reversed())
+            .toList();
+    }
+
+    public Optional<ReplayJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void removeOldFinishedJobs() {
+        jobs.values().stream()
+            .filter(ReplayJob::isFinished)
+            .sorted(Comparator.comparing(ReplayJob::getStartedAt).reversed())
+            .skip(Math.max(0, maxFinishedJobs - 1))
+            .forEach(job -> jobs.remove(job.getId()));
+    }
+}
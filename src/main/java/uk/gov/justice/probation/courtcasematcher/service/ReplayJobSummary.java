@@ -0,0 +1,35 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Value
+@Builder
+public class ReplayJobSummary {
+    String id;
+    String name;
+    ReplayJob.State state;
+    Instant startedAt;
+    Instant finishedAt;
+    // Lines in the upload, so this includes any blank or malformed lines
+    long expectedTotal;
+    long resumedFromCheckpoint;
+    Map<Replay404HearingProcessStatus, Long> statusCounts;
+    int malformedLineCount;
+    List<String> malformedLines;
+    double ratePerSecond;
+    Duration estimatedTimeRemaining;
+    Map<ReplayJob.Stage, StageLatencySummary> stageLatencies;
+
+    @Value
+    public static class StageLatencySummary {
+        long count;
+        double meanMillis;
+        double maxMillis;
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces out calls to a downstream service during a replay so that they run no faster than a fixed rate, delaying the
+ * caller rather than blocking a thread. A rate of zero or less is unlimited.
+ */
+class ReplayRateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextPermitNanos = new AtomicLong(Long.MIN_VALUE);
+
+    ReplayRateLimiter(int permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+
+    Mono<Void> acquire() {
+        if (intervalNanos == 0) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            final var wait = reserve(System.nanoTime());
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+
+    /**
+     * Reserves the next permit and returns how long after now it can be used.
+     */
+    Duration reserve(long nowNanos) {
+        final var previous = nextPermitNanos.getAndAccumulate(nowNanos, (next, now) -> Math.max(next, now) + intervalNanos);
+        return Duration.ofNanos(Math.max(previous, nowNanos) - nowNanos);
+    }
+}
@@ -0,0 +1,351 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import uk.gov.justice.probation.courtcasematcher.service.S3Service.S3ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a size-bounded copy of S3 payloads on local disk so that redelivered messages and replays don't download the
+ * same object again. Entries are keyed by bucket, key and ETag. Cached payloads are read through a memory-mapped buffer
+ * and the least recently used entries are deleted once the cache grows past its maximum size. A maximum size of zero
+ * disables the cache.
+ * <p>
+ * Most objects are only read once, so the first read of a key is a plain GET streamed straight to the reader, as it
+ * would be without the cache, and only its ETag is remembered. A key is written to disk when it is read a second time.
+ * Finding out whether a local copy is still current costs a HEAD request, so the ETag of a key is trusted for
+ * {@code etag-ttl} after it was last fetched. Within that window a hit costs no request at all, at the price of serving
+ * the previous version of an object overwritten during it. The HEAD requests made are counted in
+ * {@value #HEAD_REQUESTS_COUNTER}.
+ */
+@Component
+@Slf4j
+public class S3PayloadCache {
+
+    static final String REQUESTS_COUNTER = "court_case_matcher.s3_payload_cache.requests";
+    static final String BYTES_SAVED_COUNTER = "court_case_matcher.s3_payload_cache.bytes_saved";
+    static final String HIT_RATIO_GAUGE = "court_case_matcher.s3_payload_cache.hit_ratio";
+    static final String SIZE_GAUGE = "court_case_matcher.s3_payload_cache.size";
+    static final String HEAD_REQUESTS_COUNTER = "court_case_matcher.s3_payload_cache.head_requests";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final char SEPARATOR = '\u001f';
+    private static final char ENTRY_NAME_SEPARATOR = '-';
+
+    private final S3Client s3Client;
+    private final Path directory;
+    private final long maxSizeBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+    private final Counter headRequests;
+    private final long eTagTtlNanos;
+    // Keys read before, by the hash of their bucket and key, with the ETag they were last seen with
+    private final Cache<String, KnownObject> knownObjects;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    // The entry on disk for each key, by the hash of its bucket and key
+    private final Map<String, String> entriesByKey = new HashMap<>();
+    private long sizeBytes;
+
+    public S3PayloadCache(S3Client s3Client,
+                          MeterRegistry meterRegistry,
+                          @Value("${aws.s3.payload-cache.directory:${java.io.tmpdir}/s3-payload-cache}") String directory,
+                          @Value("${aws.s3.payload-cache.max-size:0B}") DataSize maxSize,
+                          @Value("${aws.s3.payload-cache.etag-ttl:1m}") Duration eTagTtl,
+                          @Value("${aws.s3.payload-cache.known-objects-max-size:10000}") long knownObjectsMaxSize) throws IOException {
+        this.s3Client = s3Client;
+        this.directory = Paths.get(directory);
+        this.maxSizeBytes = maxSize.toBytes();
+        this.hits = meterRegistry.counter(REQUESTS_COUNTER, "result", "hit");
+        this.misses = meterRegistry.counter(REQUESTS_COUNTER, "result", "miss");
+        this.bytesSaved = Counter.builder(BYTES_SAVED_COUNTER).baseUnit("bytes").register(meterRegistry);
+        this.headRequests = meterRegistry.counter(HEAD_REQUESTS_COUNTER);
+        this.eTagTtlNanos = eTagTtl.toNanos();
+        this.knownObjects = Caffeine.newBuilder().maximumSize(knownObjectsMaxSize).build();
+        Gauge.builder(HIT_RATIO_GAUGE, this, S3PayloadCache::getHitRatio).register(meterRegistry);
+        Gauge.builder(SIZE_GAUGE, this, S3PayloadCache::getSizeBytes).baseUnit("bytes").register(meterRegistry);
+
+        if (isEnabled()) {
+            Files.createDirectories(this.directory);
+            loadExistingEntries();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+
+    /**
+     * Reads an S3 object from the local copy when there is one for its current ETag. The first read of a key streams
+     * it straight from S3, a later one downloads it to disk first. Objects larger than the whole cache are always
+     * streamed straight from S3.
+     */
+    public <T> T getObject(String bucketName, String key, S3ObjectReader<T> reader) throws IOException {
+        if (!isEnabled()) {
+            return readFromS3(GetObjectRequest.builder().bucket(bucketName).key(key).build(), reader);
+        }
+
+        final var keyHash = sha256(bucketName + SEPARATOR + key);
+        final var known = knownObjects.getIfPresent(keyHash);
+        if (known == null && entryFor(keyHash) == null) {
+            misses.increment();
+            return readFromS3AndRemember(bucketName, key, keyHash, reader);
+        }
+
+        final var current = known != null && System.nanoTime() - known.fetchedAtNanos() < eTagTtlNanos
+                ? known
+                : head(bucketName, key, keyHash);
+        final var entryName = entryName(keyHash, current.eTag());
+
+        final var cached = map(entryName);
+        if (cached != null) {
+            hits.increment();
+            bytesSaved.increment(cached.remaining());
+            log.debug("Read s3 object {} from local cache", key);
+            return reader.read(new ByteBufferInputStream(cached));
+        }
+
+        misses.increment();
+        // Pin the download to the ETag we know, so the entry can't hold a different version of the object
+        final var request = GetObjectRequest.builder().bucket(bucketName).key(key).ifMatch(current.eTag()).build();
+        try {
+            if (current.contentLength() != null && current.contentLength() > maxSizeBytes) {
+                return readFromS3(request, reader);
+            }
+            download(request, keyHash, entryName);
+        } catch (S3Exception e) {
+            if (e.statusCode() != HttpStatus.PRECONDITION_FAILED.value()) {
+                throw e;
+            }
+            // The object was overwritten since its ETag was last fetched
+            knownObjects.invalidate(keyHash);
+            return readFromS3AndRemember(bucketName, key, keyHash, reader);
+        }
+        final var downloaded = map(entryName);
+        if (downloaded == null) {
+            // Evicted by a concurrent download before we got to it
+            return readFromS3(request, reader);
+        }
+        return reader.read(new ByteBufferInputStream(downloaded));
+    }
+
+    synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    double getHitRatio() {
+        final var total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private <T> T readFromS3(GetObjectRequest request, S3ObjectReader<T> reader) throws IOException {
+        try (var objectStream = s3Client.getObject(request)) {
+            return reader.read(objectStream);
+        }
+    }
+
+    private <T> T readFromS3AndRemember(String bucketName, String key, String keyHash, S3ObjectReader<T> reader) throws IOException {
+        try (var objectStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build())) {
+            final var response = objectStream.response();
+            knownObjects.put(keyHash, new KnownObject(response.eTag(), response.contentLength(), System.nanoTime()));
+            return reader.read(objectStream);
+        }
+    }
+
+    private KnownObject head(String bucketName, String key, String keyHash) {
+        headRequests.increment();
+        final var head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+        final var known = new KnownObject(head.eTag(), head.contentLength(), System.nanoTime());
+        knownObjects.put(keyHash, known);
+        return known;
+    }
+
+    private void download(GetObjectRequest request, String keyHash, String entryName) throws IOException {
+        final var tempFile = Files.createTempFile(directory, entryName, TEMP_SUFFIX);
+        try {
+            final long size;
+            try (var objectStream = s3Client.getObject(request)) {
+                size = Files.copy(objectStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempFile, directory.resolve(entryName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            record(keyHash, entryName, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private synchronized ByteBuffer map(String entryName) throws IOException {
+        if (entrySizes.get(entryName) == null) {
+            return null;
+        }
+        try (var channel = FileChannel.open(directory.resolve(entryName), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed and after the file is evicted
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            remove(entryName);
+            return null;
+        }
+    }
+
+    private synchronized String entryFor(String keyHash) {
+        return entriesByKey.get(keyHash);
+    }
+
+    private synchronized void record(String keyHash, String entryName, long size) {
+        final var previousEntry = entriesByKey.put(keyHash, entryName);
+        if (previousEntry != null && !previousEntry.equals(entryName)) {
+            // An older version of the object is never read again
+            delete(previousEntry);
+            remove(previousEntry);
+        }
+        final var previousSize = entrySizes.put(entryName, size);
+        sizeBytes += size - (previousSize == null ? 0 : previousSize);
+        evictTo(maxSizeBytes, entryName);
+    }
+
+    private void remove(String entryName) {
+        final var size = entrySizes.remove(entryName);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+        entriesByKey.remove(keyHash(entryName), entryName);
+    }
+
+    private void delete(String entryName) {
+        try {
+            Files.deleteIfExists(directory.resolve(entryName));
+        } catch (IOException e) {
+            log.warn("Failed to delete cached s3 object {}", entryName, e);
+        }
+    }
+
+    private void evictTo(long targetSizeBytes, String keep) {
+        final var iterator = entrySizes.entrySet().iterator();
+        while (sizeBytes > targetSizeBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            delete(eldest.getKey());
+            sizeBytes -= eldest.getValue();
+            entriesByKey.remove(keyHash(eldest.getKey()), eldest.getKey());
+            iterator.remove();
+        }
+    }
+
+    private synchronized void loadExistingEntries() throws IOException {
+        final List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        final var entries = new LinkedHashMap<Path, Long>();
+        for (Path file : files) {
+            final var fileName = file.getFileName().toString();
+            // Entries without a key prefix were written by an earlier version of the cache and can't be found by key
+            if (fileName.endsWith(TEMP_SUFFIX) || fileName.indexOf(ENTRY_NAME_SEPARATOR) < 0) {
+                Files.deleteIfExists(file);
+            } else {
+                entries.put(file, Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+        for (Path file : entries.keySet().stream().sorted(Comparator.comparing(entries::get)).toList()) {
+            final var size = Files.size(file);
+            final var entryName = file.getFileName().toString();
+            entrySizes.put(entryName, size);
+            sizeBytes += size;
+            final var previousEntry = entriesByKey.put(keyHash(entryName), entryName);
+            if (previousEntry != null) {
+                // The older of two versions of the same object, since files are loaded oldest first
+                delete(previousEntry);
+                sizeBytes -= entrySizes.remove(previousEntry);
+            }
+        }
+        evictTo(maxSizeBytes, null);
+        log.info("Loaded {} cached s3 objects ({} bytes) from {}", entrySizes.size(), sizeBytes, directory);
+    }
+
+    private static String entryName(String keyHash, String eTag) {
+        return keyHash + ENTRY_NAME_SEPARATOR + sha256(eTag);
+    }
+
+    private static String keyHash(String entryName) {
+        return entryName.substring(0, entryName.indexOf(ENTRY_NAME_SEPARATOR));
+    }
+
+    private static String sha256(String value) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record KnownObject(String eTag, Long contentLength, long fetchedAtNanos) {
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final var count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
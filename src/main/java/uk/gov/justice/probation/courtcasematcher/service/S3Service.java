@@ -5,10 +5,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
 
 @Service
 @Slf4j
@@ -21,14 +25,40 @@ public class S3Service {
     @Autowired
     private S3Client s3Client;
 
-    public String getObject(String key){
+    @Autowired
+    private S3PayloadCache s3PayloadCache;
+
+    /**
+     * Reads an object straight from the S3 response stream, so it is never held in memory whole. When the payload cache
+     * is enabled the object is read from its local copy instead.
+     */
+    public <T> T getObject(String key, S3ObjectReader<T> reader) throws IOException {
+        if (s3PayloadCache.isEnabled()) {
+            try {
+                return s3PayloadCache.getObject(bucketName, key, reader);
+            } catch (SdkException e) {
+                log.error("Failed to get file {} from S3", key, e);
+                throw new RuntimeException("Failed to get file from S3", e);
+            }
+        }
+
+        final ResponseInputStream<GetObjectResponse> objectStream;
         try {
-          String message = s3Client.getObjectAsBytes(GetObjectRequest.builder().bucket(bucketName).key(key).build()).asString(StandardCharsets.UTF_8);
-          log.info("Successfully downloaded large s3 object {}", key);
-          return message;
+            objectStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build());
         } catch (RuntimeException e) {
-          log.error("Failed to get file {} from S3", key, e);
-          throw new RuntimeException("Failed to get file from S3", e);
+            log.error("Failed to get file {} from S3", key, e);
+            throw new RuntimeException("Failed to get file from S3", e);
         }
+
+        try (objectStream) {
+            final var result = reader.read(objectStream);
+            log.info("Successfully read large s3 object {}", key);
+            return result;
+        }
+    }
+
+    @FunctionalInterface
+    public interface S3ObjectReader<T> {
+        T read(InputStream inputStream) throws IOException;
     }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.justice.probation.courtcasematcher.application.TelemetrySampling;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends telemetry events to Application Insights from a background thread, so that tracking an event never holds up
+ * the message being processed. Events are sampled by type before their properties are built, then added to a bounded
+ * lock-free buffer which is drained in batches. When the buffer is full new events are dropped and counted rather than
+ * waiting for space. A capacity of zero sends each event on the calling thread.
+ */
+@Component
+@Slf4j
+public class TelemetryDispatcher {
+
+    static final String DROPPED_COUNTER = "court_case_matcher.telemetry.dropped";
+    static final String SAMPLED_OUT_COUNTER = "court_case_matcher.telemetry.sampled_out";
+    static final String BUFFERED_GAUGE = "court_case_matcher.telemetry.buffered";
+
+    private final TelemetryClient telemetryClient;
+    private final TelemetrySampling telemetrySampling;
+    private final int capacity;
+    private final int batchSize;
+    private final Counter dropped;
+    private final Counter sampledOut;
+
+    private final Queue<TelemetryEvent> buffer = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the queue, so the bound is kept separately
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ScheduledExecutorService flusher;
+
+    public TelemetryDispatcher(TelemetryClient telemetryClient,
+                               TelemetrySampling telemetrySampling,
+                               MeterRegistry meterRegistry,
+                               @Value("${telemetry.buffer.capacity:10000}") int capacity,
+                               @Value("${telemetry.buffer.batch-size:500}") int batchSize,
+                               @Value("${telemetry.buffer.flush-interval:1s}") Duration flushInterval) {
+        this.telemetryClient = telemetryClient;
+        this.telemetrySampling = telemetrySampling;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.dropped = meterRegistry.counter(DROPPED_COUNTER, "reason", "overflow");
+        this.sampledOut = meterRegistry.counter(SAMPLED_OUT_COUNTER);
+        Gauge.builder(BUFFERED_GAUGE, buffered, AtomicInteger::get).register(meterRegistry);
+
+        if (capacity > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final var thread = new Thread(runnable, "telemetry-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public void track(TelemetryEventType eventType) {
+        track(eventType, null);
+    }
+
+    /**
+     * Queues an event to be sent. The properties are only built if the event is sampled, and are built on the calling
+     * thread because they are read from hearings and defendants that may change once this returns.
+     */
+    public void track(TelemetryEventType eventType, Supplier<Map<String, String>> properties) {
+        final var sampleRate = telemetrySampling.getSampleRate(eventType);
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
+        final var event = new TelemetryEvent(eventType.eventName, properties == null ? null : properties.get());
+        if (flusher == null) {
+            send(event);
+            return;
+        }
+        if (buffered.incrementAndGet() > capacity) {
+            buffered.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        buffer.offer(event);
+    }
+
+    /**
+     * Sends everything buffered so far, a batch at a time.
+     */
+    void flush() {
+        var sent = batchSize;
+        while (sent == batchSize) {
+            sent = 0;
+            TelemetryEvent event;
+            while (sent < batchSize && (event = buffer.poll()) != null) {
+                buffered.decrementAndGet();
+                send(event);
+                sent++;
+            }
+        }
+    }
+
+    int getBuffered() {
+        return buffered.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Telemetry flusher did not stop in time");
+        }
+        flush();
+    }
+
+    private void send(TelemetryEvent event) {
+        try {
+            if (event.properties() == null) {
+                telemetryClient.trackEvent(event.name());
+            } else {
+                telemetryClient.trackEvent(event.name(), event.properties(), Collections.emptyMap());
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled flush, so no further events would be sent
+            log.warn("Failed to send telemetry event {}", event.name(), e);
+        }
+    }
+
+    private record TelemetryEvent(String name, Map<String, String> properties) {
+    }
+}
@@ -10,6 +10,7 @@ public enum TelemetryEventType {
     HEARING_RECEIVED("PiCHearingReceived"),
     HEARING_CHANGED("PiCHearingChanged"),
     HEARING_UNCHANGED("PiCHearingUnchanged"),
+    HEARING_FINGERPRINT_MATCHED("PiCHearingFingerprintMatched"),
     PROCESSING_FAILURE("PiCMatcherProcessingFailure"),
     PROBATION_STATUS_UPDATED("PiCDefendantProbationStatusUpdated"),
     PROBATION_STATUS_NOT_UPDATED("PiCDefendantProbationStatusNotUpdated"),
@@ -1,6 +1,5 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
-import com.microsoft.applicationinsights.TelemetryClient;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
@@ -43,21 +42,22 @@ public class TelemetryService {
     static final String DEFENDANT_ID_KEY = "defendantId";
 
 
-    private final TelemetryClient telemetryClient;
+    private final TelemetryDispatcher telemetryDispatcher;
 
     public void track404HearingProcessedEvent(Map<String, String> properties) {
-        telemetryClient.trackEvent(TelemetryEventType.MISSING_HEARING_EVENT_PROCESSED.eventName, properties, Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.MISSING_HEARING_EVENT_PROCESSED, () -> properties);
     }
 
     public void trackEvent(TelemetryEventType eventType) {
-        telemetryClient.trackEvent(eventType.eventName);
+        telemetryDispatcher.track(eventType);
     }
 
     public void trackOffenderMatchFailureEvent(Defendant defendant, Hearing hearing) {
-        var properties = getHearingProperties(hearing, defendant.getPnc());
-        properties.put(DEFENDANT_ID_KEY, defendant.getDefendantId());
-
-        telemetryClient.trackEvent(TelemetryEventType.OFFENDER_MATCH_ERROR.eventName, properties, Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.OFFENDER_MATCH_ERROR, () -> {
+            var properties = getHearingProperties(hearing, defendant.getPnc());
+            properties.put(DEFENDANT_ID_KEY, defendant.getDefendantId());
+            return properties;
+        });
     }
 
     public void trackOffenderMatchEvent(Defendant defendant, Hearing hearing, MatchResponse matchResponse) {
@@ -65,78 +65,85 @@ public class TelemetryService {
             return;
         }
 
-        final var properties = getHearingProperties(hearing, defendant.getPnc());
-
         int matchCount = matchResponse.getMatchCount();
-        ofNullable(matchResponse.getMatchedBy())
-                .filter((matchedBy) -> matchCount >= 1)
-                .ifPresent((matchedBy) -> properties.put(MATCHED_BY_KEY, matchedBy.name()));
-        ofNullable(matchResponse.getMatches())
-            .ifPresent((matches -> {
-                String allCrns = matches.stream()
-                    .map(match -> match.getOffender().getOtherIds().getCrn())
-                    .collect(Collectors.joining(","));
-                properties.put(MATCHES_KEY, String.valueOf(matches.size()));
-                properties.put(DEFENDANT_ID_KEY, defendant.getDefendantId());
-                properties.put(CRNS_KEY, allCrns);
-            }));
-
         TelemetryEventType eventType = TelemetryEventType.OFFENDER_PARTIAL_MATCH;
         if (matchResponse.isExactOffenderMatch()) {
-            ofNullable(defendant.getPersonId())
-                    .ifPresent(personId -> properties.put(PERSON_ID_KEY, personId));
-
             eventType = TelemetryEventType.OFFENDER_EXACT_MATCH;
         }
         else if (matchCount == 0){
             eventType = TelemetryEventType.OFFENDER_NO_MATCH;
         }
-        telemetryClient.trackEvent(eventType.eventName, properties, Collections.emptyMap());
+
+        telemetryDispatcher.track(eventType, () -> {
+            final var properties = getHearingProperties(hearing, defendant.getPnc());
+
+            ofNullable(matchResponse.getMatchedBy())
+                    .filter((matchedBy) -> matchCount >= 1)
+                    .ifPresent((matchedBy) -> properties.put(MATCHED_BY_KEY, matchedBy.name()));
+            ofNullable(matchResponse.getMatches())
+                .ifPresent((matches -> {
+                    String allCrns = matches.stream()
+                        .map(match -> match.getOffender().getOtherIds().getCrn())
+                        .collect(Collectors.joining(","));
+                    properties.put(MATCHES_KEY, String.valueOf(matches.size()));
+                    properties.put(DEFENDANT_ID_KEY, defendant.getDefendantId());
+                    properties.put(CRNS_KEY, allCrns);
+                }));
+
+            if (matchResponse.isExactOffenderMatch()) {
+                ofNullable(defendant.getPersonId())
+                        .ifPresent(personId -> properties.put(PERSON_ID_KEY, personId));
+            }
+            return properties;
+        });
     }
 
     public void trackNewHearingEvent(Hearing hearing, String messageId) {
 
-        final var properties = getHearingProperties(hearing);
-
-        ofNullable(messageId)
-          .ifPresent((code) -> properties.put(SQS_MESSAGE_ID_KEY, messageId));
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, () -> {
+            final var properties = getHearingProperties(hearing);
 
-        telemetryClient.trackEvent(TelemetryEventType.HEARING_RECEIVED.eventName, properties, Collections.emptyMap());
+            ofNullable(messageId)
+              .ifPresent((code) -> properties.put(SQS_MESSAGE_ID_KEY, messageId));
+            return properties;
+        });
     }
 
     public void trackHearingChangedEvent(Hearing hearing) {
 
-        final var properties = getHearingProperties(hearing);
-
-        telemetryClient.trackEvent(TelemetryEventType.HEARING_CHANGED.eventName, properties, Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.HEARING_CHANGED, () -> getHearingProperties(hearing));
     }
 
     public void trackHearingUnChangedEvent(Hearing hearing) {
 
-        final var properties = getHearingProperties(hearing);
+        telemetryDispatcher.track(TelemetryEventType.HEARING_UNCHANGED, () -> getHearingProperties(hearing));
+    }
 
-        telemetryClient.trackEvent(TelemetryEventType.HEARING_UNCHANGED.eventName, properties, Collections.emptyMap());
+    public void trackHearingFingerprintMatchedEvent(Hearing hearing) {
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_FINGERPRINT_MATCHED, () -> getHearingProperties(hearing));
     }
 
     public void trackHearingMessageReceivedEvent(String messageID) {
-        Map<String, String> properties = new HashMap<>(MAX_PROPERTY_COUNT);
-        ofNullable(messageID)
-            .ifPresent((code) -> properties.put(SQS_MESSAGE_ID_KEY, messageID));
-        telemetryClient.trackEvent(TelemetryEventType.HEARING_MESSAGE_RECEIVED.eventName, properties, Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.HEARING_MESSAGE_RECEIVED, () -> {
+            Map<String, String> properties = new HashMap<>(MAX_PROPERTY_COUNT);
+            ofNullable(messageID)
+                .ifPresent((code) -> properties.put(SQS_MESSAGE_ID_KEY, messageID));
+            return properties;
+        });
     }
 
     public void trackProcessingFailureEvent(Hearing hearing) {
-        final var properties = getHearingProperties(hearing);
-        telemetryClient.trackEvent(TelemetryEventType.PROCESSING_FAILURE.eventName, properties, Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.PROCESSING_FAILURE, () -> getHearingProperties(hearing));
     }
 
     public void trackDefendantProbationStatusUpdatedEvent(Defendant defendant) {
-        telemetryClient.trackEvent(TelemetryEventType.PROBATION_STATUS_UPDATED.eventName, getDefendantProperties(defendant), Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.PROBATION_STATUS_UPDATED, () -> getDefendantProperties(defendant));
 
     }
 
     public void trackDefendantProbationStatusNotUpdatedEvent(Defendant defendant) {
-        telemetryClient.trackEvent(TelemetryEventType.PROBATION_STATUS_NOT_UPDATED.eventName, getDefendantProperties(defendant), Collections.emptyMap());
+        telemetryDispatcher.track(TelemetryEventType.PROBATION_STATUS_NOT_UPDATED, () -> getDefendantProperties(defendant));
 
     }
 
@@ -199,20 +206,21 @@ public class TelemetryService {
     }
 
     public void trackPersonRecordCreatedEvent(Defendant defendant, Hearing hearing) {
-        Map<String, String> properties = new HashMap<>(MAX_PROPERTY_COUNT);
-
-        ofNullable(hearing.getHearingId())
-                .ifPresent(hearingId -> properties.put(HEARING_ID_KEY, hearingId));
-        ofNullable(defendant.getPersonId())
-                .ifPresent(personId -> properties.put(PERSON_ID_KEY, personId));
-        ofNullable(defendant.getDefendantId())
-                .ifPresent(defendantId -> properties.put(DEFENDANT_ID_KEY, defendantId));
-        ofNullable(hearing.getCaseId())
-                .ifPresent(caseId -> properties.put(CASE_ID_KEY, caseId));
-        ofNullable(defendant.getPnc())
-                .ifPresent(pnc -> properties.put(PNC_KEY, pnc));
+        telemetryDispatcher.track(TelemetryEventType.PERSON_RECORD_CREATED, () -> {
+            Map<String, String> properties = new HashMap<>(MAX_PROPERTY_COUNT);
 
-        telemetryClient.trackEvent(TelemetryEventType.PERSON_RECORD_CREATED.eventName, properties, Collections.emptyMap());
+            ofNullable(hearing.getHearingId())
+                    .ifPresent(hearingId -> properties.put(HEARING_ID_KEY, hearingId));
+            ofNullable(defendant.getPersonId())
+                    .ifPresent(personId -> properties.put(PERSON_ID_KEY, personId));
+            ofNullable(defendant.getDefendantId())
+                    .ifPresent(defendantId -> properties.put(DEFENDANT_ID_KEY, defendantId));
+            ofNullable(hearing.getCaseId())
+                    .ifPresent(caseId -> properties.put(CASE_ID_KEY, caseId));
+            ofNullable(defendant.getPnc())
+                    .ifPresent(pnc -> properties.put(PNC_KEY, pnc));
+            return properties;
+        });
     }
 
 
@@ -0,0 +1,108 @@
+package uk.gov.justice.probation.courtcasematcher.application;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ConcurrencyLimitingFilterTest {
+
+    private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/hearing")).build();
+
+    private final List<Sinks.One<ClientResponse>> exchanges = new ArrayList<>();
+
+    private final List<ClientResponse> responses = new ArrayList<>();
+
+    private final ExchangeFunction next = request -> {
+        final var exchange = Sinks.<ClientResponse>one();
+        exchanges.add(exchange);
+        return exchange.asMono();
+    };
+
+    @Test
+    void givenLimitReached_whenRequestMade_thenWaitForAPermit() {
+        final var filter = new ConcurrencyLimitingFilter(2);
+
+        filter.filter(REQUEST, next).subscribe(responses::add);
+        filter.filter(REQUEST, next).subscribe(responses::add);
+        filter.filter(REQUEST, next).subscribe(responses::add);
+
+        assertThat(exchanges).hasSize(2);
+        assertThat(filter.getWaitingCount()).isEqualTo(1);
+
+        exchanges.getFirst().tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+        responses.getFirst().releaseBody().block();
+
+        assertThat(exchanges).hasSize(3);
+        assertThat(filter.getWaitingCount()).isZero();
+    }
+
+    @Test
+    void givenResponseReceived_whenBodyNotYetRead_thenHoldThePermitUntilItIs() {
+        final var filter = new ConcurrencyLimitingFilter(1);
+
+        filter.filter(REQUEST, next).subscribe(responses::add);
+        filter.filter(REQUEST, next).subscribe(responses::add);
+        exchanges.getFirst().tryEmitValue(ClientResponse.create(HttpStatus.OK).body("{}").build());
+
+        assertThat(responses).hasSize(1);
+        assertThat(exchanges).hasSize(1);
+        assertThat(filter.getWaitingCount()).isEqualTo(1);
+
+        assertThat(responses.getFirst().bodyToMono(String.class).block()).isEqualTo("{}");
+
+        assertThat(exchanges).hasSize(2);
+        assertThat(filter.getWaitingCount()).isZero();
+    }
+
+    @Test
+    void givenRequestCancelledBeforeResponse_thenReleasePermit() {
+        final var filter = new ConcurrencyLimitingFilter(1);
+
+        filter.filter(REQUEST, next).subscribe().dispose();
+
+        assertThat(filter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void givenRequestFails_thenReleasePermit() {
+        final var filter = new ConcurrencyLimitingFilter(1);
+
+        filter.filter(REQUEST, next).subscribe(response -> {}, error -> {});
+        exchanges.getFirst().tryEmitError(new RuntimeException("bang"));
+
+        assertThat(filter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void givenWaitingRequestCancelled_thenDoNotLosePermit() {
+        final var filter = new ConcurrencyLimitingFilter(1);
+
+        filter.filter(REQUEST, next).subscribe(responses::add);
+        final var waiting = filter.filter(REQUEST, next).subscribe();
+        waiting.dispose();
+
+        assertThat(filter.getWaitingCount()).isZero();
+
+        exchanges.getFirst().tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+        responses.getFirst().releaseBody().block();
+
+        assertThat(exchanges).hasSize(1);
+        assertThat(filter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void givenInvalidLimit_thenThrow() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new ConcurrencyLimitingFilter(0));
+    }
+}
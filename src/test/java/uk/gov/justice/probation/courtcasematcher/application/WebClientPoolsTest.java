@@ -0,0 +1,46 @@
+package uk.gov.justice.probation.courtcasematcher.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class WebClientPoolsTest {
+
+    private final WebClientPools webClientPools = new WebClientPools();
+
+    @Test
+    void getPoolSettingsReturnsTheSettingsForAClient() {
+        final var poolSettings = new WebClientPools.PoolSettings();
+        poolSettings.setMaxConnections(100);
+        poolSettings.setHttp2(true);
+        webClientPools.setClients(Map.of("court-case-service", poolSettings));
+
+        final var actual = webClientPools.getPoolSettings("court-case-service");
+
+        assertThat(actual.getMaxConnections()).isEqualTo(100);
+        assertThat(actual.isHttp2()).isTrue();
+        assertThat(actual.getPendingAcquireTimeout()).isEqualTo(Duration.ofSeconds(45));
+    }
+
+    @Test
+    void getPoolSettingsReturnsDefaultsIfNotSpecified() {
+        final var actual = webClientPools.getPoolSettings("not-set");
+
+        assertThat(actual.getMaxConnections()).isEqualTo(50);
+        assertThat(actual.getPendingAcquireMaxCount()).isEqualTo(500);
+        assertThat(actual.getMaxIdleTime()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(actual.getMaxLifeTime()).isNull();
+        assertThat(actual.isKeepAlive()).isTrue();
+        assertThat(actual.isHttp2()).isFalse();
+    }
+
+    @Test
+    void getPoolSettingsRejectsNullParameter() {
+        assertThatExceptionOfType(RuntimeException.class)
+                .isThrownBy(() -> webClientPools.getPoolSettings(null));
+    }
+}
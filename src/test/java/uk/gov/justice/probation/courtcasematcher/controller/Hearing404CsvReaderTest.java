@@ -0,0 +1,69 @@
+package uk.gov.justice.probation.courtcasematcher.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Hearing404CsvReaderTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenValidLines_whenRead_thenReturnEachHearingAndDeleteTheFile() throws IOException {
+        final var csvFile = csv("""
+                8bbb4fe3,cp/HEARINGTOUPDATE/14-51-25,19/09/2024 16:32:04
+
+                f0b1b82c,cp/NEWHEARING/14-51-21,28/09/2024 16:32:04
+                """);
+
+        final var hearings = new Hearing404CsvReader().read(csvFile, 2).collectList().block();
+
+        assertThat(hearings).containsExactly(
+                new Hearing404("8bbb4fe3", "cp/HEARINGTOUPDATE/14-51-25", LocalDateTime.of(2024, 9, 19, 16, 32, 4)),
+                new Hearing404("f0b1b82c", "cp/NEWHEARING/14-51-21", LocalDateTime.of(2024, 9, 28, 16, 32, 4)));
+        assertThat(csvFile).doesNotExist();
+    }
+
+    @Test
+    void givenMalformedLines_whenRead_thenSkipAndRecordThem() throws IOException {
+        final var csvReader = new Hearing404CsvReader();
+        final var csvFile = csv("""
+                8bbb4fe3,cp/HEARINGTOUPDATE/14-51-25
+                f0b1b82c,cp/NEWHEARING/14-51-21,2024-09-28T16:32:04
+                d11ee8c1,cp/UPDATEDSINCE404HEARING/14-51-20,28/09/2024 16:32:04
+                """);
+
+        final var hearings = csvReader.read(csvFile, 2).collectList().block();
+
+        assertThat(hearings).extracting(Hearing404::getId).containsExactly("d11ee8c1");
+        assertThat(csvReader.getMalformedLineCount()).isEqualTo(2);
+        assertThat(csvReader.getMalformedLines()).containsExactly(
+                "Line 1: expected hearing id, s3 path and received time but got 2 fields",
+                "Line 2: received time 2024-09-28T16:32:04 is not in the format dd/MM/yyyy HH:mm:ss");
+    }
+
+    @Test
+    void givenManyMalformedLines_whenRead_thenCountAllButRecordOnlyTheFirst() throws IOException {
+        final var csvReader = new Hearing404CsvReader();
+        final var lineCount = Hearing404CsvReader.MAX_RECORDED_MALFORMED_LINES + 10;
+        final var csvFile = csv(IntStream.range(0, lineCount).mapToObj(i -> "malformed").collect(Collectors.joining("\n")));
+
+        csvReader.read(csvFile, 16).blockLast();
+
+        assertThat(csvReader.getMalformedLineCount()).isEqualTo(lineCount);
+        assertThat(csvReader.getMalformedLines()).hasSize(Hearing404CsvReader.MAX_RECORDED_MALFORMED_LINES);
+    }
+
+    private Path csv(String content) throws IOException {
+        return Files.writeString(directory.resolve("hearings.csv"), content);
+    }
+}
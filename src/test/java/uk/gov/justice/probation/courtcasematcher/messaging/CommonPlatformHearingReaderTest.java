@@ -0,0 +1,155 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.justice.probation.courtcasematcher.application.MessagingConfig;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPHearingEvent;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class CommonPlatformHearingReaderTest {
+
+    private static final String BASE_PATH = "src/test/resources/messages/common-platform/";
+
+    private ObjectMapper objectMapper;
+
+    private MessageParser<CPHearingEvent> commonPlatformParser;
+
+    private CommonPlatformHearingReader commonPlatformHearingReader;
+
+    @BeforeEach
+    void setUp() {
+        final var messagingConfig = new MessagingConfig();
+        objectMapper = messagingConfig.objectMapper();
+        commonPlatformParser = messagingConfig.commonPlatformJsonParser();
+        commonPlatformHearingReader = new CommonPlatformHearingReader(objectMapper, messagingConfig.validator());
+    }
+
+    @Test
+    void whenReadMultipleCases_thenReturnTheSameHearingsAsParsingTheWholeEvent() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing-multiple-cases.json");
+
+        final List<Hearing> hearings;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            hearings = commonPlatformHearingReader.read(inputStream);
+        }
+
+        final var event = commonPlatformParser.parseMessage(Files.readString(path), CPHearingEvent.class);
+        final var expected = event.asDomain().stream()
+                .map(hearing -> hearing.withHearingId(event.getHearing().getId()))
+                .toList();
+        assertThat(hearings).hasSizeGreaterThan(1);
+        assertThat(hearings).isEqualTo(expected);
+    }
+
+    @Test
+    void givenHearingFieldsAfterProsecutionCases_whenRead_thenStillApplyThem() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing.json");
+        final var event = commonPlatformParser.parseMessage(Files.readString(path), CPHearingEvent.class);
+        final var hearingNode = (ObjectNode) objectMapper.readTree(path.toFile()).get("hearing");
+        final var reorderedHearing = objectMapper.createObjectNode();
+        reorderedHearing.set("prosecutionCases", hearingNode.remove("prosecutionCases"));
+        reorderedHearing.setAll(hearingNode);
+        final var reordered = objectMapper.writeValueAsString(objectMapper.createObjectNode().set("hearing", reorderedHearing));
+
+        final var hearings = commonPlatformHearingReader.read(asStream(reordered));
+
+        assertThat(hearings).hasSize(1);
+        assertThat(hearings.getFirst().getHearingId()).isEqualTo(event.getHearing().getId());
+        assertThat(hearings.getFirst().getCourtCode()).isEqualTo(event.getHearing().getCourtCentre().getNormalisedCode());
+    }
+
+    @Test
+    void givenHearingTypeAfterProsecutionCases_whenRead_thenApplyItToTheConvertedHearings() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing.json");
+        final var hearingNode = (ObjectNode) objectMapper.readTree(path.toFile()).get("hearing");
+        final var type = hearingNode.remove("type");
+        hearingNode.set("type", type);
+        final var reordered = objectMapper.writeValueAsString(objectMapper.createObjectNode().set("hearing", hearingNode));
+
+        final var hearings = commonPlatformHearingReader.read(asStream(reordered));
+
+        assertThat(hearings).extracting(Hearing::getHearingType).containsExactly("sentence");
+    }
+
+    @Test
+    void givenNoHearingType_whenRead_thenConvertTheProsecutionCases() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing-multiple-cases.json");
+        final var hearingNode = (ObjectNode) objectMapper.readTree(path.toFile()).get("hearing");
+        hearingNode.remove("type");
+        final var withoutType = objectMapper.writeValueAsString(objectMapper.createObjectNode().set("hearing", hearingNode));
+
+        final var hearings = commonPlatformHearingReader.read(asStream(withoutType));
+
+        final var event = commonPlatformParser.parseMessage(withoutType, CPHearingEvent.class);
+        assertThat(hearings).hasSize(event.getHearing().getProsecutionCases().size());
+        assertThat(hearings).extracting(Hearing::getHearingType).containsOnlyNulls();
+    }
+
+    @Test
+    void givenInvalidHearing_whenRead_thenThrow() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing-invalid.json");
+
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            assertThatExceptionOfType(ConstraintViolationException.class)
+                    .isThrownBy(() -> commonPlatformHearingReader.read(inputStream))
+                    // The hearing's own fields are checked before any prosecution case is validated
+                    .satisfies(e -> assertThat(e.getConstraintViolations())
+                            .extracting(violation -> violation.getPropertyPath().toString())
+                            .containsExactlyInAnyOrder("hearing.courtCentre.roomName", "hearing.hearingDays[0].sittingDay", "hearing.jurisdictionType")
+                    );
+        }
+    }
+
+    @Test
+    void givenInvalidProsecutionCase_whenRead_thenThrowWithTheSamePathAsTheWholeEvent() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing-multiple-cases.json");
+        final var eventNode = (ObjectNode) objectMapper.readTree(path.toFile());
+        ((ObjectNode) eventNode.get("hearing").get("prosecutionCases").get(1)).put("id", "");
+        final var invalid = objectMapper.writeValueAsString(eventNode);
+
+        assertThatExceptionOfType(ConstraintViolationException.class)
+                .isThrownBy(() -> commonPlatformHearingReader.read(asStream(invalid)))
+                .satisfies(e -> assertThat(e.getConstraintViolations())
+                        .extracting(violation -> violation.getPropertyPath().toString())
+                        .containsExactly("hearing.prosecutionCases[1].id")
+                );
+    }
+
+    @Test
+    void givenNullProsecutionCase_whenRead_thenThrowRatherThanDropTheCasesAfterIt() throws IOException {
+        final var path = Paths.get(BASE_PATH + "hearing-multiple-cases.json");
+        final var eventNode = (ObjectNode) objectMapper.readTree(path.toFile());
+        ((ArrayNode) eventNode.get("hearing").get("prosecutionCases")).insertNull(1);
+        final var withNull = objectMapper.writeValueAsString(eventNode);
+
+        assertThatExceptionOfType(MismatchedInputException.class)
+                .isThrownBy(() -> commonPlatformHearingReader.read(asStream(withNull)))
+                .withMessageContaining("VALUE_NULL");
+    }
+
+    @Test
+    void givenNoProsecutionCases_whenRead_thenThrow() {
+        assertThatExceptionOfType(ConstraintViolationException.class)
+                .isThrownBy(() -> commonPlatformHearingReader.read(asStream("{\"hearing\": {\"id\": \"hearing-id\", \"prosecutionCases\": []}}")));
+    }
+
+    private static InputStream asStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,7 +1,7 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,15 +27,18 @@ import uk.gov.justice.probation.courtcasematcher.model.SnsMessageContainer;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Path;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer;
 import uk.gov.justice.probation.courtcasematcher.service.S3Service;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,7 +53,7 @@ class HearingExtractorTest {
     private static final String LIBRA_EVENT_TYPE = "libra.case.received";
 
     @Mock
-    private MessageParser<SnsMessageContainer> snsContainerParser;
+    private SnsEnvelopeReader snsEnvelopeReader;
     @Mock
     private MessageParser<LibraHearing> libraParser;
     @Mock
@@ -62,11 +65,12 @@ class HearingExtractorTest {
     @Mock
     S3Service s3Service;
     @Mock
-    ObjectMapper objectMapper;
+    CommonPlatformHearingReader commonPlatformHearingReader;
 
     private HearingExtractor hearingExtractor;
     private final SnsMessageContainer.SnsMessageContainerBuilder messageContainerBuilder = SnsMessageContainer.builder()
-            .message(MESSAGE_STRING);
+            .message(MESSAGE_STRING)
+            .timestamp("2022-09-16T10:16:38.165Z");
     private final LibraHearing libraHearing = LibraHearing.builder().caseNo(CASE_NO).build();
     private final CPHearingEvent commonPlatformHearingEvent;
 
@@ -97,17 +101,18 @@ class HearingExtractorTest {
     @BeforeEach
     void setUp() {
         hearingExtractor = new HearingExtractor(
-                snsContainerParser,
+                snsEnvelopeReader,
                 libraParser,
                 commonPlatformParser,
-                objectMapper,
-                s3Service
+                s3Service,
+                commonPlatformHearingReader,
+                new HearingStageTimer(new SimpleMeterRegistry())
         );
     }
 
     @Test
     void whenLibraHearingReceived_thenParseAndReturnHearing() throws JsonProcessingException {
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class))
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING))
                 .thenReturn(messageContainerBuilder
                         .messageAttributes(new MessageAttributes(new MessageAttribute("String", LIBRA_EVENT_TYPE),
                             MessageType.LIBRA_COURT_CASE, HearingEventType.builder()
@@ -120,11 +125,12 @@ class HearingExtractorTest {
 
         assertThat(hearing).isNotNull();
         assertThat(hearing.getFirst().getCaseNo()).isEqualTo(CASE_NO);
+        assertThat(hearing.getFirst().getMessageTimestamp()).isEqualTo(Instant.parse("2022-09-16T10:16:38.165Z"));
     }
 
     @Test
     void whenCommonPlatformHearingEventReceived_thenParseAndReturnHearing() throws JsonProcessingException {
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(messageContainerBuilder
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(messageContainerBuilder
                 .messageAttributes(new MessageAttributes(new MessageAttribute("String", CP_EVENT_TYPE),
                     MessageType.COMMON_PLATFORM_HEARING, HearingEventType.builder()
                         .value("ConfirmedOrUpdated")
@@ -140,14 +146,14 @@ class HearingExtractorTest {
     }
 
     @Test
-    void whenS3StoredEventReceived_thenGetHearingFromS3_thenParseAndReturnHearing() throws JsonProcessingException {
+    void whenS3StoredEventReceived_thenGetHearingFromS3_thenParseAndReturnHearing() throws IOException {
         String s3Key = "ba8d919b-a9d8-433b-b4b4-c196f67c773e";
         String s3Bucket = "local-644707540a8083b7b15a77f51641f632";
         String messageBody = "[ \"software.amazon.payloadoffloading.PayloadS3Pointer\", {\n" +
             String.format("  \"s3BucketName\" : \"%s\",\n", s3Bucket) +
             String.format("  \"s3Key\" : \"%s\"\n", s3Key) +
             "} ]";
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(
             messageContainerBuilder
                 .message(
                     messageBody
@@ -158,18 +164,11 @@ class HearingExtractorTest {
                 .build()))
             .build());
 
-        ArrayList<Object> parseMessageBody = new ArrayList<>();
-        parseMessageBody.add("software.amazon.payloadoffloading.PayloadS3Pointer");
-        LinkedHashMap<String, String> s3Pointer = new LinkedHashMap<>();
-        s3Pointer.put("s3BucketName", s3Bucket);
-        s3Pointer.put("s3Key", s3Key);
-        parseMessageBody.add(s3Pointer);
-        when(objectMapper.readValue(messageBody, ArrayList.class)).thenReturn(parseMessageBody);
-        when(objectMapper.writeValueAsString(s3Pointer)).thenReturn(s3Pointer.toString());
-        when(objectMapper.readValue(s3Pointer.toString(), S3Message.class)).thenReturn(new S3Message(s3Bucket, s3Key));
-
-        when(s3Service.getObject(s3Key)).thenReturn(MESSAGE_STRING);
-        when(commonPlatformParser.parseMessage(MESSAGE_STRING, CPHearingEvent.class)).thenReturn(commonPlatformHearingEvent);
+        when(snsEnvelopeReader.readS3Pointer(messageBody)).thenReturn(new S3Message(s3Bucket, s3Key));
+
+        when(s3Service.getObject(eq(s3Key), any())).thenReturn(commonPlatformHearingEvent.asDomain().stream()
+                .map(hearing -> hearing.withHearingId(HEARING_ID))
+                .toList());
 
         var hearing = hearingExtractor.extractHearings(MESSAGE_CONTAINER_STRING, MESSAGE_ID);
 
@@ -180,7 +179,7 @@ class HearingExtractorTest {
 
     @Test
     void whenCommonPlatformHearingEventReceived_thenParseAndReturnHearingWithCaseMarkers() throws JsonProcessingException {
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(messageContainerBuilder
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(messageContainerBuilder
                 .messageAttributes(new MessageAttributes(
                     new MessageAttribute("String", CP_EVENT_TYPE),
                     MessageType.COMMON_PLATFORM_HEARING, HearingEventType.builder()
@@ -197,7 +196,7 @@ class HearingExtractorTest {
 
     @Test
     void whenUnknownTypeReceived_thenThrow() throws JsonProcessingException {
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(messageContainerBuilder
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(messageContainerBuilder
                 .messageAttributes(new MessageAttributes(new MessageAttribute("String", CP_EVENT_TYPE),
                     MessageType.UNKNOWN, HearingEventType.builder().value("Resulted").build()))
                 .build());
@@ -209,7 +208,7 @@ class HearingExtractorTest {
 
     @Test
     void whenNoneTypeReceived_thenThrow() throws JsonProcessingException {
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(messageContainerBuilder
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(messageContainerBuilder
                 .messageAttributes(new MessageAttributes(new MessageAttribute("String", CP_EVENT_TYPE),
                     MessageType.NONE, HearingEventType.builder()
                         .value("Resulted")
@@ -225,7 +224,7 @@ class HearingExtractorTest {
     void givenInputIsInvalid_whenParsingMessageContainer_thenThrow() throws JsonProcessingException {
         final Set<? extends ConstraintViolation<?>> constraintViolations = Set.of(aViolation);
         final var violationException = new ConstraintViolationException("Validation failed", constraintViolations);
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenThrow(violationException);
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenThrow(violationException);
         when(aViolation.getPropertyPath()).thenReturn(path);
 
         assertThatExceptionOfType(RuntimeException.class)
@@ -238,7 +237,7 @@ class HearingExtractorTest {
     void givenInputIsInvalid_whenParsingLibraCase_thenThrow() throws JsonProcessingException {
         final var constraintViolations = Set.of(aViolation);
         final var violationException = new ConstraintViolationException("Validation failed", constraintViolations);
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenReturn(messageContainerBuilder
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenReturn(messageContainerBuilder
                 .messageAttributes(new MessageAttributes(new MessageAttribute("String", LIBRA_EVENT_TYPE),
                     MessageType.LIBRA_COURT_CASE, HearingEventType.builder()
                         .value("Resulted")
@@ -256,7 +255,7 @@ class HearingExtractorTest {
     @Test
     void givenJsonProcessingExceptionIsThrown_whenParsingHearing_thenThrow() throws JsonProcessingException {
         final var jsonProcessingException = new TestJsonProcessingException("💥");
-        when(snsContainerParser.parseMessage(MESSAGE_CONTAINER_STRING, SnsMessageContainer.class)).thenThrow(jsonProcessingException);
+        when(snsEnvelopeReader.read(MESSAGE_CONTAINER_STRING)).thenThrow(jsonProcessingException);
 
         assertThatExceptionOfType(RuntimeException.class)
                 .isThrownBy(() -> hearingExtractor.extractHearings(MESSAGE_CONTAINER_STRING, MESSAGE_ID))
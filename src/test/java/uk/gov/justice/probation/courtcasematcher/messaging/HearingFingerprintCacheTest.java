@@ -0,0 +1,108 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Name;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Offence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.justice.probation.courtcasematcher.model.type.DefendantType.PERSON;
+
+class HearingFingerprintCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private HearingFingerprintCache hearingFingerprintCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hearingFingerprintCache = new HearingFingerprintCache(meterRegistry, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void givenZeroTtl_thenCacheIsDisabled() {
+        assertThat(new HearingFingerprintCache(meterRegistry, Duration.ZERO, 100).isEnabled()).isFalse();
+        assertThat(hearingFingerprintCache.isEnabled()).isTrue();
+    }
+
+    @Test
+    void givenEqualContent_thenFingerprintsMatch() {
+        assertThat(HearingFingerprintCache.fingerprint(aHearing("Arson")))
+                .isEqualTo(HearingFingerprintCache.fingerprint(aHearing("Arson")));
+    }
+
+    @Test
+    void givenChangedOffence_thenFingerprintsDiffer() {
+        assertThat(HearingFingerprintCache.fingerprint(aHearing("Arson")))
+                .isNotEqualTo(HearingFingerprintCache.fingerprint(aHearing("Theft")));
+    }
+
+    @Test
+    void givenChangedSessionStartTime_thenFingerprintsDiffer() {
+        final var hearing = aHearing("Arson");
+        final var changed = aHearing("Arson").withHearingDays(List.of(HearingDay.builder()
+                .courtCode("B10JQ")
+                .courtRoom("01")
+                .sessionStartTime(LocalDateTime.of(2024, 1, 1, 14, 0))
+                .build()));
+
+        assertThat(HearingFingerprintCache.fingerprint(hearing)).isNotEqualTo(HearingFingerprintCache.fingerprint(changed));
+    }
+
+    @Test
+    void givenFingerprintRecorded_thenSameFingerprintMatches() {
+        final var hearing = aHearing("Arson");
+        final var fingerprint = HearingFingerprintCache.fingerprint(hearing);
+
+        assertThat(hearingFingerprintCache.matches(hearing, fingerprint)).isFalse();
+        hearingFingerprintCache.record(hearing, fingerprint);
+        assertThat(hearingFingerprintCache.matches(hearing, fingerprint)).isTrue();
+        assertThat(hearingFingerprintCache.matches(hearing, HearingFingerprintCache.fingerprint(aHearing("Theft")))).isFalse();
+
+        assertThat(meterRegistry.counter(HearingFingerprintCache.FINGERPRINT_COUNTER, "result", "matched").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(HearingFingerprintCache.FINGERPRINT_COUNTER, "result", "not_matched").count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenDifferentHearingIds_thenFingerprintsAreKeptSeparately() {
+        final var hearing = aHearing("Arson");
+        final var fingerprint = HearingFingerprintCache.fingerprint(hearing);
+        hearingFingerprintCache.record(hearing, fingerprint);
+
+        final var otherHearing = aHearing("Arson").withHearingId("other-hearing");
+        assertThat(hearingFingerprintCache.matches(otherHearing, fingerprint)).isFalse();
+    }
+
+    private static Hearing aHearing(String offenceTitle) {
+        return Hearing.builder()
+                .source(DataSource.COMMON_PLATFORM)
+                .caseId("case-id")
+                .hearingId("hearing-id")
+                .urn("URN")
+                .hearingDays(List.of(HearingDay.builder()
+                        .courtCode("B10JQ")
+                        .courtRoom("01")
+                        .sessionStartTime(LocalDateTime.of(2024, 1, 1, 10, 0))
+                        .build()))
+                .defendants(List.of(Defendant.builder()
+                        .defendantId("defendant-id")
+                        .type(PERSON)
+                        .name(Name.builder().forename1("Joe").surname("Bloggs").build())
+                        .offences(List.of(Offence.builder()
+                                .offenceTitle(offenceTitle)
+                                .sequenceNumber(1)
+                                .build()))
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,370 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.awspring.cloud.sqs.annotation.SqsListener;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.scheduler.Scheduler;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
+import uk.gov.justice.hmpps.sqs.HmppsQueue;
+import uk.gov.justice.hmpps.sqs.HmppsQueueService;
+import uk.gov.justice.hmpps.sqs.HmppsTopic;
+import uk.gov.justice.probation.courtcasematcher.application.TestMessagingConfig;
+import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
+import uk.gov.justice.probation.courtcasematcher.wiremock.WiremockExtension;
+import uk.gov.justice.probation.courtcasematcher.wiremock.WiremockMockServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Publishes a configurable mix of messages to the local SNS topic at a target rate and reports throughput, end-to-end
+ * latency and the downstream calls made per message. Run it against localstack with
+ * {@code ./gradlew loadTest -Dloadtest.rate=20 -Dloadtest.duration-seconds=30 -Dloadtest.mix=libra=40,cp=40,large=10,duplicate=10}.
+ * A message's latency runs from publishing it to SNS until the listener has finished processing it.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test"})
+@Import({TestMessagingConfig.class, HearingLoadTest.LoadTestConfig.class})
+public class HearingLoadTest {
+
+    private static final String BASE_PATH = "src/test/resources/messages";
+    private static final Path REPORT_PATH = Paths.get("build/reports/load-test/summary.json");
+    private static final String TOPIC_NAME = "courtcasestopic";
+    private static final String LOAD_TEST_ID = "loadTestId";
+    private static final int PUBLISHER_THREADS = 8;
+    // Ids in downstream URLs are replaced so that calls are counted per endpoint
+    private static final Pattern ID_IN_URL = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+");
+    private static final String CP_HEARING_ID = "E10E3EF3-8637-40E3-BDED-8ED104A380AC";
+    private static final String CP_CASE_ID = "D2B61C8A-0684-4764-B401-F0A788BC7CCF";
+    private static final String LIBRA_CASE_NO = "1600032981";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final WiremockMockServer MOCK_SERVER = new WiremockMockServer(8090, "mocks", false);
+
+    @RegisterExtension
+    static WiremockExtension wiremockExtension = new WiremockExtension(MOCK_SERVER);
+
+    private static final Map<String, Long> completedAt = new ConcurrentHashMap<>();
+    private static final AtomicInteger failures = new AtomicInteger();
+
+    private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "20"));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    private final Map<MessageKind, Integer> mix = parseMix(System.getProperty("loadtest.mix", "libra=40,cp=40,large=10,duplicate=10"));
+
+    @Autowired
+    private HmppsQueueService hmppsQueueService;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${aws.s3.large-hearings.bucket-name}")
+    private String s3LargeHearingBucket;
+
+    @Value("${commonplatform.event.type.large}")
+    private String largeEventType;
+
+    @Value("${commonplatform.event.type.default}")
+    private String eventType;
+
+    private HmppsTopic topic;
+    private String cpTemplate;
+    private String libraTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        topic = hmppsQueueService.findByTopicId(TOPIC_NAME);
+        HmppsQueue queue = hmppsQueueService.findByQueueId("courtcasesqueue");
+        queue.getSqsClient().purgeQueue(PurgeQueueRequest.builder().queueUrl(queue.getQueueUrl()).build());
+        queue.getSqsDlqClient().purgeQueue(PurgeQueueRequest.builder().queueUrl(queue.getDlqUrl()).build());
+
+        cpTemplate = Files.readString(Paths.get(BASE_PATH + "/common-platform/hearing.json"));
+        libraTemplate = Files.readString(Paths.get(BASE_PATH + "/libra/case.json"));
+        completedAt.clear();
+        failures.set(0);
+    }
+
+    @Test
+    void publishMessageMixAtTargetRate() throws Exception {
+        final var total = (int) Math.max(1, Math.round(rate * duration.toSeconds()));
+        final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+        final Map<MessageKind, AtomicInteger> sentByKind = new EnumMap<>(MessageKind.class);
+        Arrays.stream(MessageKind.values()).forEach(kind -> sentByKind.put(kind, new AtomicInteger()));
+        final List<LoadTestMessage> originals = new CopyOnWriteArrayList<>();
+
+        final var publishers = Executors.newFixedThreadPool(PUBLISHER_THREADS);
+        final var scheduler = Executors.newSingleThreadScheduledExecutor();
+        final var remaining = new AtomicInteger(total);
+        final var allPublished = new CountDownLatch(total);
+        final var start = System.nanoTime();
+        // Publishing happens off the scheduler thread, so a slow publish doesn't hold back the rest
+        scheduler.scheduleAtFixedRate(() -> {
+            if (remaining.getAndDecrement() > 0) {
+                publishers.execute(() -> {
+                    try {
+                        final var kind = nextKind(originals);
+                        publish(kind, originals, sentAt);
+                        sentByKind.get(kind).incrementAndGet();
+                    } catch (Exception e) {
+                        log.error("Failed to publish load test message", e);
+                        failures.incrementAndGet();
+                    } finally {
+                        allPublished.countDown();
+                    }
+                });
+            }
+        }, 0, Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate)), TimeUnit.NANOSECONDS);
+
+        allPublished.await();
+        scheduler.shutdownNow();
+        publishers.shutdown();
+
+        await()
+            .atMost(duration.plusMinutes(2))
+            .pollInterval(Duration.ofMillis(200))
+            .until(() -> completedAt.keySet().containsAll(sentAt.keySet()));
+
+        report(start, sentAt, sentByKind);
+        assertThat(failures.get()).isZero();
+    }
+
+    private MessageKind nextKind(List<LoadTestMessage> originals) {
+        final var weightTotal = mix.values().stream().mapToInt(Integer::intValue).sum();
+        var choice = ThreadLocalRandom.current().nextInt(weightTotal);
+        for (Map.Entry<MessageKind, Integer> weight : mix.entrySet()) {
+            choice -= weight.getValue();
+            if (choice < 0) {
+                return weight.getKey() == MessageKind.DUPLICATE && originals.isEmpty() ? MessageKind.CP : weight.getKey();
+            }
+        }
+        throw new IllegalStateException("No message kind chosen");
+    }
+
+    private void publish(MessageKind kind, List<LoadTestMessage> originals, Map<String, Long> sentAt) {
+        final var message = switch (kind) {
+            case LIBRA -> libraMessage();
+            case CP -> cpMessage();
+            case LARGE -> largeMessage();
+            case DUPLICATE -> originals.get(ThreadLocalRandom.current().nextInt(originals.size()));
+        };
+        if (kind != MessageKind.DUPLICATE) {
+            originals.add(message);
+        }
+
+        final var loadTestId = UUID.randomUUID().toString();
+        final var attributes = new HashMap<>(message.attributes());
+        attributes.put(LOAD_TEST_ID, stringAttribute(loadTestId));
+        sentAt.put(loadTestId, System.nanoTime());
+        try {
+            topic.getSnsClient().publish(PublishRequest.builder()
+                    .topicArn(topic.getArn())
+                    .message(message.body())
+                    .messageAttributes(attributes)
+                    // Re-sent hearings share a group with the original, so they arrive in order as they would in production
+                    .messageGroupId(message.groupId())
+                    .messageDeduplicationId(loadTestId)
+                    .build())
+                .join();
+        } catch (RuntimeException e) {
+            // Never published, so there is nothing to wait for
+            sentAt.remove(loadTestId);
+            throw e;
+        }
+    }
+
+    private LoadTestMessage cpMessage() {
+        final var hearingId = UUID.randomUUID().toString();
+        final var body = cpTemplate.replace(CP_HEARING_ID, hearingId).replace(CP_CASE_ID, UUID.randomUUID().toString());
+        return new LoadTestMessage(body, Map.of(
+            "eventType", stringAttribute(eventType),
+            "messageType", stringAttribute("COMMON_PLATFORM_HEARING"),
+            "hearingEventType", stringAttribute("ConfirmedOrUpdated")
+        ), hearingId);
+    }
+
+    private LoadTestMessage largeMessage() {
+        final var hearing = cpMessage();
+        final var s3Key = UUID.randomUUID().toString();
+        s3Client.putObject(builder -> builder.bucket(s3LargeHearingBucket).key(s3Key), RequestBody.fromString(hearing.body()));
+
+        final var body = "[ \"software.amazon.payloadoffloading.PayloadS3Pointer\", {\n" +
+            String.format("  \"s3BucketName\" : \"%s\",\n", s3LargeHearingBucket) +
+            String.format("  \"s3Key\" : \"%s\"\n", s3Key) +
+            "} ]";
+        return new LoadTestMessage(body, Map.of(
+            "eventType", stringAttribute(largeEventType),
+            "messageType", stringAttribute("COMMON_PLATFORM_HEARING"),
+            "hearingEventType", stringAttribute("ConfirmedOrUpdated"),
+            "ExtendedPayloadSize", stringAttribute(String.valueOf(hearing.body().length()))
+        ), hearing.groupId());
+    }
+
+    private LoadTestMessage libraMessage() {
+        final var caseNo = String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L));
+        return new LoadTestMessage(libraTemplate.replace(LIBRA_CASE_NO, caseNo), Map.of(
+            "messageType", stringAttribute("LIBRA_COURT_CASE"),
+            "hearingEventType", stringAttribute("ConfirmedOrUpdated")
+        ), caseNo);
+    }
+
+    private void report(long start, Map<String, Long> sentAt, Map<MessageKind, AtomicInteger> sentByKind) throws IOException {
+        final var latenciesMillis = sentAt.entrySet().stream()
+            .mapToDouble(sent -> (completedAt.get(sent.getKey()) - sent.getValue()) / 1_000_000.0)
+            .sorted()
+            .toArray();
+        final var lastCompleted = completedAt.values().stream().mapToLong(Long::longValue).max().orElse(start);
+        final var elapsedSeconds = (lastCompleted - start) / 1_000_000_000.0;
+        final var sent = sentAt.size();
+
+        final Map<String, Double> downstreamCallsPerMessage = MOCK_SERVER.getAllServeEvents().stream()
+            .collect(Collectors.groupingBy(
+                serveEvent -> serveEvent.getRequest().getMethod() + " " + ID_IN_URL.matcher(serveEvent.getRequest().getUrl()).replaceAll("{id}"),
+                TreeMap::new,
+                Collectors.collectingAndThen(Collectors.counting(), count -> (double) count / sent)));
+
+        final var report = new LinkedHashMap<String, Object>();
+        report.put("targetRatePerSecond", rate);
+        report.put("messagesSent", sent);
+        report.put("messagesSentByKind", sentByKind);
+        report.put("failures", failures.get());
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("throughputPerSecond", sent / elapsedSeconds);
+        report.put("latencyMillis", Map.of(
+            "p50", percentile(latenciesMillis, 50),
+            "p95", percentile(latenciesMillis, 95),
+            "p99", percentile(latenciesMillis, 99),
+            "max", percentile(latenciesMillis, 100)
+        ));
+        report.put("downstreamCallsPerMessage", downstreamCallsPerMessage);
+
+        final var writer = OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
+        log.info("Load test results:\n{}", writer.writeValueAsString(report));
+        Files.createDirectories(REPORT_PATH.getParent());
+        writer.writeValue(REPORT_PATH.toFile(), report);
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final var index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static Map<MessageKind, Integer> parseMix(String mix) {
+        final Map<MessageKind, Integer> weights = new EnumMap<>(MessageKind.class);
+        for (String weight : mix.split(",")) {
+            final var parts = weight.trim().split("=");
+            weights.put(MessageKind.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static MessageAttributeValue stringAttribute(String value) {
+        return MessageAttributeValue.builder().dataType("String").stringValue(value).build();
+    }
+
+    private enum MessageKind {
+        LIBRA, CP, LARGE, DUPLICATE
+    }
+
+    private record LoadTestMessage(String body, Map<String, MessageAttributeValue> attributes, String groupId) {
+    }
+
+    /**
+     * Records when each load test message has been fully processed, identified by the attribute it was published with.
+     */
+    static class TimedSqsMessageReceiver extends SqsMessageReceiver {
+
+        TimedSqsMessageReceiver(HearingProcessor hearingProcessor, TelemetryService telemetryService,
+                                HearingExtractor hearingExtractor, Scheduler messageExtractionScheduler) {
+            super(hearingProcessor, telemetryService, hearingExtractor, messageExtractionScheduler);
+        }
+
+        @Override
+        @SqsListener(
+            value = "courtcasesqueue",
+            factory = "hmppsQueueContainerFactoryProxy",
+            maxConcurrentMessages = "${hmpps.sqs.queues.courtcasesqueue.maxConcurrentMessages:3}",
+            maxMessagesPerPoll = "${hmpps.sqs.queues.courtcasesqueue.maxMessagesPerPoll:3}"
+        )
+        public CompletableFuture<Void> receive(@NotEmpty String message, @Header(value = "id") String messageId) {
+            final var loadTestId = loadTestId(message);
+            return super.receive(message, messageId).whenComplete((result, error) -> {
+                if (error != null) {
+                    failures.incrementAndGet();
+                }
+                completedAt.putIfAbsent(loadTestId, System.nanoTime());
+            });
+        }
+
+        private static String loadTestId(String message) {
+            try {
+                return OBJECT_MAPPER.readTree(message).path("MessageAttributes").path(LOAD_TEST_ID).path("Value").asText();
+            } catch (JsonProcessingException e) {
+                return "unknown";
+            }
+        }
+    }
+
+    @TestConfiguration
+    public static class LoadTestConfig {
+
+        @Autowired
+        private TelemetryService telemetryService;
+        @Autowired
+        @Qualifier("hearingProcessor")
+        private HearingProcessor hearingProcessor;
+        @Autowired
+        private HearingExtractor hearingExtractor;
+        @Autowired
+        private Scheduler messageExtractionScheduler;
+
+        @Bean
+        public SqsMessageReceiver sqsMessageReceiver() {
+            return new TimedSqsMessageReceiver(hearingProcessor, telemetryService, hearingExtractor, messageExtractionScheduler);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -12,12 +13,17 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.CaseMarker;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Name;
 import uk.gov.justice.probation.courtcasematcher.model.mapper.HearingMapper;
 import uk.gov.justice.probation.courtcasematcher.service.CourtCaseService;
 import uk.gov.justice.probation.courtcasematcher.service.CprService;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer;
 import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -55,7 +61,10 @@ class HearingProcessorTest {
         hearingProcessor = new HearingProcessor(telemetryService,
                 courtCaseService,
                 cprService,
-                featureFlags
+                featureFlags,
+                new HearingFingerprintCache(new SimpleMeterRegistry(), Duration.ZERO, 0),
+                new HearingSerialiser(new SimpleMeterRegistry()),
+                new HearingStageTimer(new SimpleMeterRegistry())
         );
 
     }
@@ -66,6 +75,8 @@ class HearingProcessorTest {
         @BeforeEach
         public void setUp() {
             when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.empty());
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveHearing(any(Hearing.class))).thenReturn(Mono.empty());
         }
 
         @Test
@@ -83,7 +94,7 @@ class HearingProcessorTest {
                             .build()))
                     .build();
 
-            hearingProcessor.process(courtCase, MESSAGE_ID);
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
 
             verify(telemetryService).trackNewHearingEvent(any(Hearing.class), eq(MESSAGE_ID));
             verify(courtCaseService).saveHearing(eq(courtCase));
@@ -104,7 +115,7 @@ class HearingProcessorTest {
                                 .build()))
                         .build();
 
-                hearingProcessor.process(courtCase, MESSAGE_ID);
+                hearingProcessor.process(courtCase, MESSAGE_ID).block();
 
                 verify(telemetryService).trackNewHearingEvent(any(Hearing.class), eq(MESSAGE_ID));
                 verify(courtCaseService).saveHearing(eq(courtCase));
@@ -113,6 +124,40 @@ class HearingProcessorTest {
             }
         }
 
+        @Nested
+        public class AndTheFingerprintCacheIsEnabled {
+            @Test
+            void whenTheSameHearingIsReceivedTwice_ThenSkipTheSecond() {
+                hearingProcessor = new HearingProcessor(telemetryService,
+                        courtCaseService,
+                        cprService,
+                        featureFlags,
+                        new HearingFingerprintCache(new SimpleMeterRegistry(), Duration.ofMinutes(1), 100),
+                        new HearingSerialiser(new SimpleMeterRegistry()),
+                        new HearingStageTimer(new SimpleMeterRegistry())
+                );
+                var courtCase = Hearing.builder()
+                        .hearingDays(Collections.singletonList(HearingDay.builder()
+                                .courtCode("SHF")
+                                .build()))
+                        .defendants(Collections.singletonList(Defendant.builder()
+                                .cro("CRO")
+                                .type(PERSON)
+                                .build()))
+                        .build();
+
+                hearingProcessor.process(courtCase, MESSAGE_ID).block();
+                hearingProcessor.process(courtCase, MESSAGE_ID).block();
+
+                verify(telemetryService).trackNewHearingEvent(any(Hearing.class), eq(MESSAGE_ID));
+                verify(telemetryService).trackHearingFingerprintMatchedEvent(courtCase);
+                verify(courtCaseService).saveHearing(eq(courtCase));
+                verify(courtCaseService).findHearing(any(Hearing.class));
+                verify(cprService).updateDefendants(courtCase.getDefendants());
+                verifyNoMoreInteractions(courtCaseService, telemetryService);
+            }
+        }
+
     }
 
     @Nested
@@ -167,8 +212,10 @@ class HearingProcessorTest {
             var courtCaseMerged = HearingMapper.merge(courtCase, existingHearing);
             when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearing));
             when(courtCaseService.updateProbationStatusDetail(courtCaseMerged)).thenReturn(Mono.just(courtCaseMerged));
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveHearing(courtCaseMerged)).thenReturn(Mono.empty());
 
-            hearingProcessor.process(courtCase, MESSAGE_ID);
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
 
             verify(telemetryService).trackHearingChangedEvent(any(Hearing.class));
             verify(courtCaseService).findHearing(any(Hearing.class));
@@ -176,11 +223,105 @@ class HearingProcessorTest {
             verify(courtCaseService, timeout(MATCHER_THREAD_TIMEOUT)).saveHearing(eq(courtCaseMerged));
             verifyNoMoreInteractions(courtCaseService, telemetryService);
         }
+        @Test
+        void whenOnlyADefendantHasChangedAndPartialUpdatesEnabled_ThenSaveTheDefendantOnly() {
+            when(featureFlags.getFlag(HearingProcessor.BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE)).thenReturn(false);
+            when(featureFlags.getFlag(HearingProcessor.PARTIAL_HEARING_UPDATES)).thenReturn(true);
+            var courtCase = Hearing.builder()
+                    .caseId(caseId)
+                    .defendants(Collections.singletonList(existingDefendant
+                            .withName(Name.builder().forename1("Joe").surname("Bloggs").build())))
+                    .build();
+            var courtCaseMerged = HearingMapper.merge(courtCase, existingHearing);
+            when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearing));
+            when(courtCaseService.updateProbationStatusDetail(courtCaseMerged)).thenReturn(Mono.just(courtCaseMerged));
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveDefendants(courtCaseMerged, Set.of(defendantId))).thenReturn(Mono.empty());
+
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
+
+            verify(telemetryService).trackHearingChangedEvent(any(Hearing.class));
+            verify(courtCaseService).findHearing(any(Hearing.class));
+            verify(courtCaseService).updateProbationStatusDetail(eq(courtCaseMerged));
+            verify(courtCaseService).saveDefendants(courtCaseMerged, Set.of(defendantId));
+            verifyNoMoreInteractions(courtCaseService, telemetryService);
+        }
+
+        @Test
+        void whenEnrichmentChangesAnotherDefendantAndPartialUpdatesEnabled_ThenSaveThatDefendantToo() {
+            when(featureFlags.getFlag(HearingProcessor.BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE)).thenReturn(false);
+            when(featureFlags.getFlag(HearingProcessor.PARTIAL_HEARING_UPDATES)).thenReturn(true);
+            final var otherDefendantId = UUID.randomUUID().toString();
+            final var otherDefendant = Defendant.builder()
+                    .type(PERSON)
+                    .crn("X320742")
+                    .defendantId(otherDefendantId)
+                    .build();
+            final var existingHearingWithTwoDefendants = existingHearing.withDefendants(List.of(existingDefendant, otherDefendant));
+            var courtCase = existingHearingWithTwoDefendants.withDefendants(List.of(
+                    existingDefendant.withName(Name.builder().forename1("Joe").surname("Bloggs").build()),
+                    otherDefendant));
+            var courtCaseMerged = HearingMapper.merge(courtCase, existingHearingWithTwoDefendants);
+            var courtCaseUpdated = courtCaseMerged.withDefendants(List.of(
+                    courtCaseMerged.getDefendants().get(0),
+                    courtCaseMerged.getDefendants().get(1).withProbationStatus("CURRENT")));
+            when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearingWithTwoDefendants));
+            when(courtCaseService.updateProbationStatusDetail(courtCaseMerged)).thenReturn(Mono.just(courtCaseUpdated));
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveDefendants(courtCaseUpdated, Set.of(defendantId, otherDefendantId))).thenReturn(Mono.empty());
+
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
+
+            verify(courtCaseService).saveDefendants(courtCaseUpdated, Set.of(defendantId, otherDefendantId));
+        }
+
+        @Test
+        void whenEnrichmentLeavesOtherDefendantsUnchangedAndPartialUpdatesEnabled_ThenSaveTheChangedDefendantOnly() {
+            when(featureFlags.getFlag(HearingProcessor.BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE)).thenReturn(false);
+            when(featureFlags.getFlag(HearingProcessor.PARTIAL_HEARING_UPDATES)).thenReturn(true);
+            final var otherDefendant = Defendant.builder()
+                    .type(PERSON)
+                    .crn("X320742")
+                    .defendantId(UUID.randomUUID().toString())
+                    .build();
+            final var existingHearingWithTwoDefendants = existingHearing.withDefendants(List.of(existingDefendant, otherDefendant));
+            var courtCase = existingHearingWithTwoDefendants.withDefendants(List.of(
+                    existingDefendant.withName(Name.builder().forename1("Joe").surname("Bloggs").build()),
+                    otherDefendant));
+            var courtCaseMerged = HearingMapper.merge(courtCase, existingHearingWithTwoDefendants);
+            when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearingWithTwoDefendants));
+            when(courtCaseService.updateProbationStatusDetail(courtCaseMerged)).thenReturn(Mono.just(courtCaseMerged));
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveDefendants(courtCaseMerged, Set.of(defendantId))).thenReturn(Mono.empty());
+
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
+
+            verify(courtCaseService).saveDefendants(courtCaseMerged, Set.of(defendantId));
+        }
+
+        @Test
+        void whenHearingDaysHaveChangedAndPartialUpdatesEnabled_ThenSaveTheWholeHearing() {
+            when(featureFlags.getFlag(HearingProcessor.BYPASS_OFFENDER_SEARCH_CACHE_ON_UPDATE)).thenReturn(false);
+            when(featureFlags.getFlag(HearingProcessor.PARTIAL_HEARING_UPDATES)).thenReturn(true);
+            var courtCase = existingHearing.withHearingDays(Collections.singletonList(HearingDay.builder()
+                    .courtCode("SHF")
+                    .build()));
+            var courtCaseMerged = HearingMapper.merge(courtCase, existingHearing);
+            when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearing));
+            when(courtCaseService.updateProbationStatusDetail(courtCaseMerged)).thenReturn(Mono.just(courtCaseMerged));
+            when(cprService.updateDefendants(any())).thenReturn(Mono.empty());
+            when(courtCaseService.saveHearing(courtCaseMerged)).thenReturn(Mono.empty());
+
+            hearingProcessor.process(courtCase, MESSAGE_ID).block();
+
+            verify(courtCaseService).saveHearing(eq(courtCaseMerged));
+        }
+
         @Test
         void whenThatCaseHasNotChanged_ThenJustTrackEvent() {
             when(courtCaseService.findHearing(any(Hearing.class))).thenReturn(Mono.just(existingHearing));
 
-            hearingProcessor.process(existingHearing, MESSAGE_ID);
+            hearingProcessor.process(existingHearing, MESSAGE_ID).block();
 
             verify(telemetryService).trackHearingUnChangedEvent(any(Hearing.class));
             verify(courtCaseService).findHearing(any(Hearing.class));
@@ -192,7 +333,7 @@ class HearingProcessorTest {
     @Test
     void givenNullCourtCase_thenThrowRuntimeException() {
         var hearing = Hearing.builder().build();
-        assertThrows(RuntimeException.class, () -> hearingProcessor.process(hearing, MESSAGE_ID));
+        assertThrows(RuntimeException.class, () -> hearingProcessor.process(hearing, MESSAGE_ID).block());
         verify(telemetryService, times(1)).trackProcessingFailureEvent(hearing);
     }
 }
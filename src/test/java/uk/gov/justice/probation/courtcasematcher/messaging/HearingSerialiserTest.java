@@ -0,0 +1,154 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class HearingSerialiserTest {
+
+    private static final String KEY = "hearing-id/case-id";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private HearingSerialiser hearingSerialiser;
+
+    private final List<String> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hearingSerialiser = new HearingSerialiser(meterRegistry);
+    }
+
+    @Test
+    void givenTaskRunningForKey_whenAnotherSubmitted_thenWaitForTheFirst() {
+        final var firstTask = Sinks.<Void>empty();
+        final var first = submit(KEY, "first", firstTask.asMono());
+        final var second = submit(KEY, "second", Mono.empty());
+
+        assertThat(started).containsExactly("first");
+        assertThat(second).isNotDone();
+
+        firstTask.tryEmitEmpty();
+
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    @Test
+    void givenTasksQueuedForKey_thenRunOnlyTheNewest() {
+        final var firstTask = Sinks.<Void>empty();
+        submit(KEY, "first", firstTask.asMono());
+        final var second = submit(KEY, "second", Mono.empty());
+        final var third = submit(KEY, "third", Mono.empty());
+
+        firstTask.tryEmitEmpty();
+
+        assertThat(started).containsExactly("first", "third");
+        assertThat(second).isDone();
+        assertThat(third).isDone();
+        assertThat(meterRegistry.counter(HearingSerialiser.COALESCED_COUNTER).count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenOlderTaskQueuedAfterANewerOne_thenRunOnlyTheNewerOne() {
+        final var firstTask = Sinks.<Void>empty();
+        submit(KEY, "first", Instant.parse("2024-09-19T16:32:03Z"), firstTask.asMono());
+        final var newer = submit(KEY, "newer", Instant.parse("2024-09-19T16:32:05Z"), Mono.error(new RuntimeException("bang")));
+        final var older = submit(KEY, "older", Instant.parse("2024-09-19T16:32:04Z"), Mono.empty());
+
+        firstTask.tryEmitEmpty();
+
+        assertThat(started).containsExactly("first", "newer");
+        assertThatExceptionOfType(RuntimeException.class).isThrownBy(newer::join);
+        assertThatExceptionOfType(RuntimeException.class).isThrownBy(older::join);
+    }
+
+    @Test
+    void givenOlderTaskSubmittedWhileANewerOneRuns_thenCompleteWithTheNewerOnesResult() {
+        final var newerTask = Sinks.<Void>empty();
+        final var newer = submit(KEY, "newer", Instant.parse("2024-09-19T16:32:05Z"), newerTask.asMono());
+        final var older = submit(KEY, "older", Instant.parse("2024-09-19T16:32:04Z"), Mono.empty());
+
+        assertThat(older).isNotDone();
+
+        newerTask.tryEmitEmpty();
+
+        assertThat(started).containsExactly("newer");
+        assertThat(newer).isDone();
+        assertThat(older).isDone();
+        assertThat(meterRegistry.counter(HearingSerialiser.COALESCED_COUNTER).count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenTaskQueued_thenRunItWithItsSubmittersContext() {
+        final var firstTask = Sinks.<Void>empty();
+        final var contextValues = new ArrayList<String>();
+        submit(KEY, "first", firstTask.asMono());
+        final var second = hearingSerialiser.submit(KEY, null,
+                        () -> Mono.deferContextual(context -> {
+                            contextValues.add(context.get("submitter"));
+                            return Mono.<Void>empty();
+                        }))
+                .contextWrite(context -> context.put("submitter", "second"))
+                .toFuture();
+
+        firstTask.tryEmitEmpty();
+
+        assertThat(second).isDone();
+        assertThat(contextValues).containsExactly("second");
+    }
+
+    @Test
+    void givenDifferentKeys_thenRunConcurrently() {
+        submit(KEY, "first", Sinks.<Void>empty().asMono());
+        submit("other-hearing-id/case-id", "second", Mono.empty());
+
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    @Test
+    void givenNewestTaskFails_thenReplacedTasksFailToo() {
+        final var firstTask = Sinks.<Void>empty();
+        submit(KEY, "first", firstTask.asMono());
+        final var second = submit(KEY, "second", Mono.empty());
+        final var third = submit(KEY, "third", Mono.error(new RuntimeException("bang")));
+
+        firstTask.tryEmitEmpty();
+
+        assertThatExceptionOfType(RuntimeException.class).isThrownBy(second::join);
+        assertThatExceptionOfType(RuntimeException.class).isThrownBy(third::join);
+    }
+
+    @Test
+    void givenTaskFails_thenNextTaskForKeyStillRuns() {
+        final var first = submit(KEY, "first", Mono.error(new RuntimeException("bang")));
+        final var second = submit(KEY, "second", Mono.empty());
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isDone();
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    private CompletableFuture<Void> submit(String key, String name, Mono<Void> task) {
+        return submit(key, name, null, task);
+    }
+
+    private CompletableFuture<Void> submit(String key, String name, Instant messageTimestamp, Mono<Void> task) {
+        return hearingSerialiser.submit(key, messageTimestamp, () -> {
+            started.add(name);
+            return task;
+        }).toFuture();
+    }
+}
@@ -4,7 +4,9 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.justice.probation.courtcasematcher.messaging.HearingDiff.DefendantChange;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Address;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
@@ -14,7 +16,10 @@ import uk.gov.justice.probation.courtcasematcher.model.domain.PhoneNumber;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static uk.gov.justice.probation.courtcasematcher.model.type.DefendantType.ORGANISATION;
@@ -425,4 +430,160 @@ class IncomingHearingComparatorTest {
 
         assertTrue(IncomingHearingComparator.hasCourtHearingChanged(courtCaseReceived, existingCourtCase));
     }
-}
\ No newline at end of file
+
+    @DisplayName("Received case has the same defendants as the existing case in a different order")
+    @Test
+    void givenReceivedCourtCaseHasSameDefendantsReordered_ThenReturnFalse() {
+        var defendant1 = Defendant.builder()
+                .defendantId("D1")
+                .cro("CRO")
+                .type(PERSON)
+                .name(Name.builder().forename1("Joe").surname("Bloggs").build())
+                .build();
+        var defendant2 = Defendant.builder()
+                .defendantId("D2")
+                .cro("CRO-another")
+                .type(PERSON)
+                .name(Name.builder().forename1("Jane").surname("Doe").build())
+                .build();
+        var courtCaseReceived = Hearing.builder()
+                .defendants(Arrays.asList(defendant2, defendant1))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .defendants(Arrays.asList(defendant1, defendant2))
+                .build();
+
+        assertFalse(IncomingHearingComparator.hasCourtHearingChanged(courtCaseReceived, existingCourtCase));
+    }
+
+    @DisplayName("Diff reports the changed field groups of only the changed defendant")
+    @Test
+    void givenOneOfTwoDefendantsChanged_ThenDiffReportsOnlyThatDefendant() {
+        var defendant1 = Defendant.builder()
+                .defendantId("D1")
+                .type(PERSON)
+                .name(Name.builder().forename1("Joe").surname("Bloggs").build())
+                .build();
+        var defendant2 = Defendant.builder()
+                .defendantId("D2")
+                .type(PERSON)
+                .name(Name.builder().forename1("Jane").surname("Doe").build())
+                .build();
+        var courtCaseReceived = Hearing.builder()
+                .defendants(Arrays.asList(defendant1, defendant2
+                        .withPhoneNumber(PhoneNumber.builder().mobile("07000000000").build())
+                        .withAddress(Address.builder().postcode("S1 2BJ").build())))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .defendants(Arrays.asList(defendant1, defendant2))
+                .build();
+
+        var diff = IncomingHearingComparator.diff(courtCaseReceived, existingCourtCase);
+
+        assertTrue(diff.hasChanges());
+        assertFalse(diff.isDefendantsAddedOrRemoved());
+        assertFalse(diff.isHearingDaysChanged());
+        assertEquals(Map.of("D2", Set.of(DefendantChange.ADDRESS, DefendantChange.PHONE_NUMBER)), diff.getChangedDefendants());
+    }
+
+    @DisplayName("Received case replaces a defendant with another")
+    @Test
+    void givenReceivedCourtCaseReplacesDefendant_ThenDiffReportsAddedOrRemoved() {
+        var courtCaseReceived = Hearing.builder()
+                .defendants(Collections.singletonList(Defendant.builder()
+                        .defendantId("D1")
+                        .type(PERSON)
+                        .build()))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .defendants(Collections.singletonList(Defendant.builder()
+                        .defendantId("D2")
+                        .type(PERSON)
+                        .build()))
+                .build();
+
+        assertTrue(IncomingHearingComparator.diff(courtCaseReceived, existingCourtCase).isDefendantsAddedOrRemoved());
+    }
+
+    @DisplayName("Received defendants sharing a defendant ID can't be saved on their own")
+    @Test
+    void givenReceivedDefendantsWithDuplicateDefendantId_ThenDiffIsNotDefendantsOnly() {
+        var defendant1 = Defendant.builder()
+                .defendantId("D1")
+                .type(PERSON)
+                .build();
+        var defendant2 = Defendant.builder()
+                .defendantId("D2")
+                .type(PERSON)
+                .build();
+        var courtCaseReceived = Hearing.builder()
+                .defendants(Arrays.asList(
+                        defendant1.withAddress(Address.builder().postcode("S1 2BJ").build()),
+                        defendant1.withPhoneNumber(PhoneNumber.builder().mobile("07000000000").build())))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .defendants(Arrays.asList(defendant1, defendant2))
+                .build();
+
+        var diff = IncomingHearingComparator.diff(courtCaseReceived, existingCourtCase);
+
+        assertTrue(diff.hasChanges());
+        assertTrue(diff.isDefendantsAmbiguous());
+        assertFalse(diff.isDefendantsOnly());
+    }
+
+    @DisplayName("Existing defendants sharing a cId can't be updated on their own")
+    @Test
+    void givenExistingDefendantsWithDuplicateCId_ThenDiffIsNotDefendantsOnly() {
+        var courtCaseReceived = Hearing.builder()
+                .source(DataSource.LIBRA)
+                .defendants(Collections.singletonList(Defendant.builder()
+                        .cId("C1")
+                        .cro("CRO")
+                        .type(PERSON)
+                        .build()))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .source(DataSource.LIBRA)
+                .defendants(Arrays.asList(
+                        Defendant.builder().defendantId("D1").cId("C1").type(PERSON).build(),
+                        Defendant.builder().defendantId("D2").cId("C1").type(PERSON).build()))
+                .build();
+
+        var diff = IncomingHearingComparator.diff(courtCaseReceived, existingCourtCase);
+
+        assertTrue(diff.isDefendantsAmbiguous());
+        assertFalse(diff.isDefendantsOnly());
+    }
+
+    @DisplayName("LIBRA defendants are matched by cId rather than the assigned defendant ID")
+    @Test
+    void givenLibraCourtCase_ThenMatchDefendantsByCId() {
+        var courtCaseReceived = Hearing.builder()
+                .source(DataSource.LIBRA)
+                .defendants(Collections.singletonList(Defendant.builder()
+                        .defendantId("random-id")
+                        .cId("C1")
+                        .cro("CRO")
+                        .type(PERSON)
+                        .build()))
+                .build();
+
+        var existingCourtCase = Hearing.builder()
+                .source(DataSource.LIBRA)
+                .defendants(Collections.singletonList(Defendant.builder()
+                        .defendantId("D1")
+                        .cId("C1")
+                        .cro("CRO")
+                        .type(PERSON)
+                        .build()))
+                .build();
+
+        assertFalse(IncomingHearingComparator.hasCourtHearingChanged(courtCaseReceived, existingCourtCase));
+    }
+}
@@ -1,6 +1,8 @@
 package uk.gov.justice.probation.courtcasematcher.messaging;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Profile;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import uk.gov.justice.probation.courtcasematcher.application.MessagingConfig;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.commonplatform.CPAddress;
@@ -29,7 +32,6 @@ import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraAddr
 import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraHearing;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraName;
 import uk.gov.justice.probation.courtcasematcher.messaging.model.libra.LibraOffence;
-import uk.gov.justice.probation.courtcasematcher.model.SnsMessageContainer;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -44,34 +46,11 @@ import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
-import static uk.gov.justice.probation.courtcasematcher.messaging.model.MessageType.COMMON_PLATFORM_HEARING;
 
 @ExtendWith(SpringExtension.class)
 @DisplayName("Message Parser Test")
 @Profile("test")
 class MessageParserTest {
-    @Nested
-    @DisplayName("SNS Message Container Json")
-    @Import(MessagingConfig.class)
-    class SnsMessageContainerJsonMessageParser {
-
-        @Autowired
-        @Qualifier("snsMessageWrapperJsonParser")
-        public MessageParser<SnsMessageContainer> messageParser;
-
-        @Test
-        void whenValidContainer_ThenReturn() throws IOException {
-            var path = "src/test/resources/messages/sns-message-container.json";
-            var content = Files.readString(Paths.get(path));
-
-            var messageContainer = messageParser.parseMessage(content, SnsMessageContainer.class);
-
-            assertThat(messageContainer).isNotNull();
-            assertThat(messageContainer.getMessageAttributes().getMessageType()).isEqualTo(COMMON_PLATFORM_HEARING);
-            assertThat(messageContainer.getMessageAttributes().getHearingEventType().getValue()).isEqualTo("Resulted");
-        }
-    }
-
     @Nested
     @DisplayName("Common Platform Json")
     @Import(MessagingConfig.class)
@@ -274,6 +253,55 @@ class MessageParserTest {
 
     }
 
+    @Nested
+    @DisplayName("Common Platform Json with Blackbird")
+    @Import(MessagingConfig.class)
+    @TestPropertySource(properties = "messaging.jackson.blackbird.enabled=true")
+    class BlackbirdCommonPlatformJsonMessageParser {
+
+        @Autowired
+        @Qualifier("commonPlatformJsonParser")
+        public MessageParser<CPHearingEvent> messageParser;
+
+        @Autowired
+        public ObjectMapper objectMapper;
+
+        @Test
+        void whenValidCase_ThenReturnTheSameAsWithoutBlackbird() throws IOException {
+            assertThat(objectMapper.getRegisteredModuleIds()).contains(new BlackbirdModule().getTypeId());
+
+            var path = "src/test/resources/messages/common-platform/hearing-multiple-cases.json";
+            var content = Files.readString(Paths.get(path));
+
+            var aHearingEvent = messageParser.parseMessage(content, CPHearingEvent.class);
+
+            var expected = new MessagingConfig().commonPlatformJsonParser().parseMessage(content, CPHearingEvent.class);
+            assertThat(aHearingEvent).isEqualTo(expected);
+        }
+    }
+
+    @Nested
+    @DisplayName("Common Platform Json with fail fast validation")
+    @Import(MessagingConfig.class)
+    @TestPropertySource(properties = "messaging.validation.fail-fast=true")
+    class FailFastCommonPlatformJsonMessageParser {
+
+        @Autowired
+        @Qualifier("commonPlatformJsonParser")
+        public MessageParser<CPHearingEvent> messageParser;
+
+        @Test
+        void whenInvalidCase_ThenThrowTheFirstConstraintViolationOnly() throws IOException {
+            var path = "src/test/resources/messages/common-platform/hearing-invalid.json";
+            var content = Files.readString(Paths.get(path));
+
+            var thrown = catchThrowable(() -> messageParser.parseMessage(content, CPHearingEvent.class));
+
+            var ex = (ConstraintViolationException) thrown;
+            assertThat(ex.getConstraintViolations()).hasSize(1);
+        }
+    }
+
     @Nested
     @DisplayName("Libra JSON")
     @Import(MessagingConfig.class)
@@ -0,0 +1,82 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.justice.probation.courtcasematcher.application.MessagingConfig;
+import uk.gov.justice.probation.courtcasematcher.messaging.model.MessageType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class SnsEnvelopeReaderTest {
+
+    private SnsEnvelopeReader snsEnvelopeReader;
+
+    @BeforeEach
+    void setUp() {
+        final var messagingConfig = new MessagingConfig();
+        snsEnvelopeReader = new SnsEnvelopeReader(messagingConfig.objectMapper(), messagingConfig.validator());
+    }
+
+    @Test
+    void whenReadEnvelope_thenReturnRoutingFields() throws IOException {
+        final var payload = Files.readString(Paths.get("src/test/resources/messages/sns-message-container.json"));
+
+        final var container = snsEnvelopeReader.read(payload);
+
+        assertThat(container.getMessageId()).isEqualTo("416d1cbe-e844-5d8e-a856-4720a702d28a");
+        assertThat(container.getType()).isEqualTo("Notification");
+        assertThat(container.getMessage()).isEqualTo("foo");
+        assertThat(container.getMessageType()).isEqualTo(MessageType.COMMON_PLATFORM_HEARING);
+        assertThat(container.getHearingEventType().getValue()).isEqualTo("Resulted");
+        assertThat(container.getSignature()).isNull();
+    }
+
+    @Test
+    void whenReadEnvelopeWithEscapedMessage_thenUnescapeMessage() throws IOException {
+        final var payload = Files.readString(Paths.get("src/test/resources/messages/libra/case-sns-metadata.json"));
+
+        final var container = snsEnvelopeReader.read(payload);
+
+        assertThat(container.getMessage()).startsWith("{  \"caseId\": 1217464,");
+    }
+
+    @Test
+    void givenBlankMessage_whenReadEnvelope_thenThrow() throws IOException {
+        final var payload = Files.readString(Paths.get("src/test/resources/messages/libra/case-sns-metadata-invalid.json"));
+
+        assertThatExceptionOfType(ConstraintViolationException.class)
+                .isThrownBy(() -> snsEnvelopeReader.read(payload));
+    }
+
+    @Test
+    void givenNotAnObject_whenReadEnvelope_thenThrow() {
+        assertThatExceptionOfType(JsonProcessingException.class)
+                .isThrownBy(() -> snsEnvelopeReader.read("[]"));
+    }
+
+    @Test
+    void whenReadS3Pointer_thenReturnBucketAndKey() throws JsonProcessingException {
+        final var message = "[ \"software.amazon.payloadoffloading.PayloadS3Pointer\", {\n" +
+                "  \"s3BucketName\" : \"local-644707540a8083b7b15a77f51641f632\",\n" +
+                "  \"s3Key\" : \"ba8d919b-a9d8-433b-b4b4-c196f67c773e\"\n" +
+                "} ]";
+
+        final var s3Message = snsEnvelopeReader.readS3Pointer(message);
+
+        assertThat(s3Message.getS3BucketName()).isEqualTo("local-644707540a8083b7b15a77f51641f632");
+        assertThat(s3Message.getS3Key()).isEqualTo("ba8d919b-a9d8-433b-b4b4-c196f67c773e");
+    }
+
+    @Test
+    void givenUnexpectedShape_whenReadS3Pointer_thenThrow() {
+        assertThatExceptionOfType(JsonProcessingException.class)
+                .isThrownBy(() -> snsEnvelopeReader.readS3Pointer("{\"s3Key\": \"key\"}"));
+    }
+}
@@ -0,0 +1,131 @@
+package uk.gov.justice.probation.courtcasematcher.messaging;
+
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.service.TelemetryService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SqsBatchMessageReceiverTest {
+
+    @Mock
+    private HearingProcessor hearingProcessor;
+    @Mock
+    private TelemetryService telemetryService;
+    @Mock
+    private HearingExtractor hearingExtractor;
+    @Mock
+    private BatchAcknowledgement<String> acknowledgement;
+
+    private SqsBatchMessageReceiver sqsBatchMessageReceiver;
+
+    @BeforeEach
+    void setUp() {
+        sqsBatchMessageReceiver = new SqsBatchMessageReceiver(hearingProcessor, telemetryService, hearingExtractor, Schedulers.boundedElastic());
+    }
+
+    @DisplayName("Given the same hearing twice in a poll then process only the latest and acknowledge both")
+    @Test
+    void givenSameHearingTwice_whenReceived_ThenProcessLatestOnly() {
+        final var first = MessageBuilder.withPayload("first").build();
+        final var second = MessageBuilder.withPayload("second").build();
+        final var firstHearing = aHearing("hearing-1", "CRN1");
+        final var secondHearing = aHearing("hearing-1", "CRN2");
+        when(hearingExtractor.extractHearings(eq("first"), anyString())).thenReturn(List.of(firstHearing));
+        when(hearingExtractor.extractHearings(eq("second"), anyString())).thenReturn(List.of(secondHearing));
+        when(hearingProcessor.process(eq(secondHearing), anyString())).thenReturn(Mono.empty());
+        when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        sqsBatchMessageReceiver.receive(List.of(first, second), acknowledgement).join();
+
+        verify(hearingProcessor, never()).process(eq(firstHearing), anyString());
+        verify(hearingProcessor).process(secondHearing, String.valueOf(second.getHeaders().getId()));
+        verify(acknowledgement).acknowledgeAsync(List.<Message<String>>of(first, second));
+    }
+
+    @DisplayName("Given a newer re-send of a hearing comes first in a poll then process it and acknowledge both")
+    @Test
+    void givenNewerHearingFirst_whenReceived_ThenProcessNewerOnly() {
+        final var newer = MessageBuilder.withPayload("newer").build();
+        final var older = MessageBuilder.withPayload("older").build();
+        final var newerHearing = aHearing("hearing-1", "CRN2").withMessageTimestamp(Instant.parse("2024-09-19T16:32:05Z"));
+        final var olderHearing = aHearing("hearing-1", "CRN1").withMessageTimestamp(Instant.parse("2024-09-19T16:32:04Z"));
+        when(hearingExtractor.extractHearings(eq("newer"), anyString())).thenReturn(List.of(newerHearing));
+        when(hearingExtractor.extractHearings(eq("older"), anyString())).thenReturn(List.of(olderHearing));
+        when(hearingProcessor.process(eq(newerHearing), anyString())).thenReturn(Mono.empty());
+        when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        sqsBatchMessageReceiver.receive(List.of(newer, older), acknowledgement).join();
+
+        verify(hearingProcessor, never()).process(eq(olderHearing), anyString());
+        verify(hearingProcessor).process(newerHearing, String.valueOf(newer.getHeaders().getId()));
+        verify(acknowledgement).acknowledgeAsync(List.<Message<String>>of(newer, older));
+    }
+
+    @DisplayName("Given one hearing fails then acknowledge only the other messages")
+    @Test
+    void givenOneHearingFails_whenReceived_ThenAcknowledgeOthers() {
+        final var failing = MessageBuilder.withPayload("failing").build();
+        final var succeeding = MessageBuilder.withPayload("succeeding").build();
+        final var failingHearing = aHearing("hearing-1", "CRN1");
+        final var succeedingHearing = aHearing("hearing-2", "CRN2");
+        when(hearingExtractor.extractHearings(eq("failing"), anyString())).thenReturn(List.of(failingHearing));
+        when(hearingExtractor.extractHearings(eq("succeeding"), anyString())).thenReturn(List.of(succeedingHearing));
+        when(hearingProcessor.process(eq(failingHearing), anyString())).thenReturn(Mono.error(new RuntimeException("bang")));
+        when(hearingProcessor.process(eq(succeedingHearing), anyString())).thenReturn(Mono.empty());
+        when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        sqsBatchMessageReceiver.receive(List.of(failing, succeeding), acknowledgement).join();
+
+        verify(acknowledgement).acknowledgeAsync(List.<Message<String>>of(succeeding));
+    }
+
+    @DisplayName("Given a message cannot be extracted then acknowledge only the other messages")
+    @Test
+    void givenUnreadableMessage_whenReceived_ThenAcknowledgeOthers() {
+        final var unreadable = MessageBuilder.withPayload("unreadable").build();
+        final var readable = MessageBuilder.withPayload("readable").build();
+        final var hearing = aHearing("hearing-1", "CRN1");
+        when(hearingExtractor.extractHearings(eq("unreadable"), anyString())).thenThrow(new RuntimeException("bad json"));
+        when(hearingExtractor.extractHearings(eq("readable"), anyString())).thenReturn(List.of(hearing));
+        when(hearingProcessor.process(eq(hearing), anyString())).thenReturn(Mono.empty());
+        when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        sqsBatchMessageReceiver.receive(List.of(unreadable, readable), acknowledgement).join();
+
+        verify(telemetryService).trackHearingMessageReceivedEvent(String.valueOf(unreadable.getHeaders().getId()));
+        verify(telemetryService).trackHearingMessageReceivedEvent(String.valueOf(readable.getHeaders().getId()));
+        verify(acknowledgement).acknowledgeAsync(List.<Message<String>>of(readable));
+    }
+
+    private static Hearing aHearing(String hearingId, String crn) {
+        return Hearing.builder()
+                .source(DataSource.COMMON_PLATFORM)
+                .hearingId(hearingId)
+                .caseId("case-id")
+                .defendants(List.of(Defendant.builder().crn(crn).build()))
+                .build();
+    }
+}
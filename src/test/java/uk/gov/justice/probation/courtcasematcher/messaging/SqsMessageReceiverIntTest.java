@@ -20,6 +20,7 @@ import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.scheduler.Scheduler;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
@@ -436,10 +437,12 @@ public class SqsMessageReceiverIntTest {
         private HearingProcessor caseMessageProcessor;
         @Autowired
         private HearingExtractor caseExtractor;
+        @Autowired
+        private Scheduler messageExtractionScheduler;
 
         @Bean
         public SqsMessageReceiver sqsMessageReceiver() {
-            return new SqsMessageReceiver(caseMessageProcessor, telemetryService, caseExtractor);
+            return new SqsMessageReceiver(caseMessageProcessor, telemetryService, caseExtractor, messageExtractionScheduler);
         }
     }
 
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
 import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
@@ -16,9 +18,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
-import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -58,15 +60,16 @@ class SqsMessageReceiverTest {
 
     @BeforeEach
     public void setUp() {
-        sqsMessageReceiver = new SqsMessageReceiver(caseProcessor, telemetryService,  caseExtractor);
+        sqsMessageReceiver = new SqsMessageReceiver(caseProcessor, telemetryService,  caseExtractor, Schedulers.boundedElastic());
     }
 
     @DisplayName("Given a valid Libra JSON message then track and process")
     @Test
     void givenLibraMessage_whenReceived_ThenTrackAndProcess() throws Exception {
         when(caseExtractor.extractHearings(singleCaseJson, MESSAGE_ID)).thenReturn(libraHearing);
+        when(caseProcessor.process(libraHearing.getFirst(), MESSAGE_ID)).thenReturn(Mono.empty());
 
-        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID);
+        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID).join();
 
         verify(telemetryService).trackHearingMessageReceivedEvent(MESSAGE_ID);
         verify(caseProcessor).process(libraHearing.getFirst(), MESSAGE_ID);
@@ -77,8 +80,9 @@ class SqsMessageReceiverTest {
     @Test
     void givenCommonPlatformMessage_whenReceived_ThenProcess() throws Exception {
         when(caseExtractor.extractHearings(singleCaseJson, MESSAGE_ID)).thenReturn(commonPlatformHearing);
+        when(caseProcessor.process(commonPlatformHearing.getFirst(), MESSAGE_ID)).thenReturn(Mono.empty());
 
-        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID);
+        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID).join();
 
 
         verify(telemetryService).trackHearingMessageReceivedEvent(MESSAGE_ID);
@@ -91,7 +95,7 @@ class SqsMessageReceiverTest {
     void givenInvalidCommonPlatformMessage_whenReceived_ThenDoNotProcess() throws Exception {
         when(caseExtractor.extractHearings(singleCaseJson, MESSAGE_ID)).thenReturn(invalidCommonPlatformHearing);
 
-        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID);
+        sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID).join();
 
         verify(telemetryService).trackHearingMessageReceivedEvent(MESSAGE_ID);
         verifyNoInteractions(caseProcessor); //Common Platform hearing with no defendants should not be processed
@@ -103,20 +107,20 @@ class SqsMessageReceiverTest {
         final var runtimeException = new RuntimeException("Bang");
         when(caseExtractor.extractHearings(singleCaseJson, MESSAGE_ID)).thenThrow(runtimeException);
 
-        assertThatExceptionOfType(RuntimeException.class)
-                .isThrownBy(() -> sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID))
-                .isEqualTo(runtimeException);
+        assertThatExceptionOfType(CompletionException.class)
+                .isThrownBy(() -> sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID).join())
+                .withCause(runtimeException);
     }
 
     @Test
     void givenExceptionThrown_whenProcessCase_thenThrow() {
         final var runtimeException = new RuntimeException("Bang");
         when(caseExtractor.extractHearings(singleCaseJson, MESSAGE_ID)).thenReturn(libraHearing);
-        doThrow(runtimeException).when(caseProcessor).process(libraHearing.getFirst(), MESSAGE_ID);
+        when(caseProcessor.process(libraHearing.getFirst(), MESSAGE_ID)).thenReturn(Mono.error(runtimeException));
 
-        assertThatExceptionOfType(RuntimeException.class)
-                .isThrownBy(() -> sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID))
-                .isEqualTo(runtimeException);
+        assertThatExceptionOfType(CompletionException.class)
+                .isThrownBy(() -> sqsMessageReceiver.receive(singleCaseJson, MESSAGE_ID).join())
+                .withCause(runtimeException);
     }
 
 }
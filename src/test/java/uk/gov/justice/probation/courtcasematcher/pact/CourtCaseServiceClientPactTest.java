@@ -26,6 +26,7 @@ import java.util.Map;
 
 import static au.com.dius.pact.consumer.dsl.LambdaDsl.newJsonBody;
 import static org.assertj.core.api.Assertions.assertThat;
+import static uk.gov.justice.probation.courtcasematcher.pact.DomainDataHelper.DEFENDANT_ID;
 import static uk.gov.justice.probation.courtcasematcher.pact.DomainDataHelper.HEARING_ID;
 
 @SpringBootTest
@@ -229,6 +230,60 @@ class CourtCaseServiceClientPactTest {
                 .toPact(V4Pact.class);
     }
 
+    @Pact(provider = "court-case-service", consumer = "court-case-matcher")
+    public V4Pact putDefendantByHearingIdPact(PactDslWithProvider builder) {
+
+        final var body = newJsonBody((defendant) -> {
+            defendant.object("address", (addressObj -> {
+                addressObj.stringType("line1");
+                addressObj.stringType("line2");
+                addressObj.stringType("line3");
+                addressObj.stringType("line4");
+                addressObj.stringType("line5");
+                addressObj.stringType("postcode");
+            }));
+            defendant.date("dateOfBirth", "yyyy-MM-dd");
+            defendant.object("name", (name -> {
+                name.stringType("title");
+                name.stringType("forename1");
+                name.stringType("forename2");
+                name.stringType("forename3");
+                name.stringType("surname");
+            }));
+            defendant.array("offences", (offences) -> offences.object((offence) -> {
+                offence.stringType("offenceTitle");
+                offence.stringType("offenceSummary");
+                offence.stringType("act");
+                offence.integerType("sequenceNumber");
+                offence.stringType("offenceCode");
+            }));
+            defendant.stringType("probationStatus", "CURRENT");
+            defendant.stringType("type", "ORGANISATION");
+            defendant.stringType("crn");
+            defendant.stringType("cro");
+            defendant.stringType("pnc");
+            defendant.booleanType("preSentenceActivity");
+            defendant.date("previouslyKnownTerminationDate", "yyyy-MM-dd");
+            defendant.stringType("sex");
+            defendant.booleanType("suspendedSentenceOrder");
+            defendant.booleanType("awaitingPsr");
+            defendant.booleanType("breach");
+            defendant.stringValue("defendantId", DEFENDANT_ID);
+            defendant.stringType("personId");
+        }).build();
+
+        return builder
+                .given("a hearing exists for hearingId " + HEARING_ID + " with defendant " + DEFENDANT_ID)
+                .uponReceiving("a request to put a single defendant of a hearing")
+                .path(String.format("/hearing/%s/defendants/%s", HEARING_ID, DEFENDANT_ID))
+                .headers("Content-type", "application/json")
+                .method("PUT")
+                .body(body)
+                .willRespondWith()
+                .status(200)
+                .toPact(V4Pact.class);
+    }
+
     @PactTestFor(pactMethod = "getHearingByIdPact")
     @Test
     void getHearingById() {
@@ -266,4 +321,14 @@ class CourtCaseServiceClientPactTest {
 
         assertThat(actual).isEmpty();
     }
+
+    @PactTestFor(pactMethod = "putDefendantByHearingIdPact")
+    @Test
+    void putDefendant() {
+        final var defendant = DomainDataHelper.aHearingWithAllFields().getDefendants().get(0);
+
+        final var actual = restClient.putDefendant(HEARING_ID, defendant).blockOptional();
+
+        assertThat(actual).isEmpty();
+    }
 }
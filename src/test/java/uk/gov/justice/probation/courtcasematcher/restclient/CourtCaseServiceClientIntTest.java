@@ -152,6 +152,19 @@ class CourtCaseServiceClientIntTest {
         );
     }
 
+    @Test
+    void whenPutDefendant_thenItsSuccessful() {
+        final var hearing = aHearingBuilderWithAllFields()
+                .build();
+        final var voidMono = client.putDefendant(HEARING_ID, hearing.getDefendants().getFirst());
+        assertThat(voidMono.blockOptional()).isEmpty();
+
+        MOCK_SERVER.verify(
+                putRequestedFor(urlEqualTo(String.format("/hearing/%s/defendants/%s", HEARING_ID, DEFENDANT_ID)))
+        );
+        assertThat(MOCK_SERVER.findAllUnmatchedRequests().size()).isEqualTo(0);
+    }
+
     @Test
     void whenRestClientThrows500OnPut_ThenThrow() {
         final var hearing = aHearingBuilderWithAllFields()
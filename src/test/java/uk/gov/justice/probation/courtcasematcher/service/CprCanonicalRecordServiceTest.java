@@ -0,0 +1,98 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import uk.gov.justice.probation.courtcasematcher.restclient.CprServiceClient;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.cprservice.CprDefendant;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CprCanonicalRecordServiceTest {
+
+    private static final String DEFENDANT_ID = "0ab7c3e5-eb4c-4e3f-b9e6-b9e78d3ea199";
+    private static final String C_ID = "1234";
+
+    @Mock
+    private CprServiceClient cprServiceClient;
+
+    private CprCanonicalRecordService cprCanonicalRecordService;
+
+    @BeforeEach
+    void setUp() {
+        cprCanonicalRecordService = new CprCanonicalRecordService(cprServiceClient, new SimpleMeterRegistry(), Duration.ofMinutes(10), Duration.ofMinutes(2), 100);
+    }
+
+    @Test
+    void givenRecordFound_whenRequestedAgain_thenReturnCachedRecord() {
+        final var cprDefendant = CprDefendant.builder().cprUUID("cpr-uuid").build();
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID)).thenReturn(Mono.just(cprDefendant));
+
+        assertThat(cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).block()).isEqualTo(cprDefendant);
+        assertThat(cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).block()).isEqualTo(cprDefendant);
+
+        verify(cprServiceClient, times(1)).getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID);
+    }
+
+    @Test
+    void givenRecordNotFound_whenRequestedAgain_thenReturnEmptyWithoutCallingCpr() {
+        when(cprServiceClient.getCprCanonicalRecordByLibraId(C_ID)).thenReturn(Mono.empty());
+
+        assertThat(cprCanonicalRecordService.getByLibraId(C_ID).block()).isNull();
+        assertThat(cprCanonicalRecordService.getByLibraId(C_ID).block()).isNull();
+
+        verify(cprServiceClient, times(1)).getCprCanonicalRecordByLibraId(C_ID);
+    }
+
+    @Test
+    void givenSameIdentifierFromDifferentSources_thenLookUpEach() {
+        when(cprServiceClient.getCprCanonicalRecordByLibraId(C_ID)).thenReturn(Mono.empty());
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(C_ID)).thenReturn(Mono.empty());
+
+        cprCanonicalRecordService.getByLibraId(C_ID).block();
+        cprCanonicalRecordService.getByCommonPlatformId(C_ID).block();
+
+        verify(cprServiceClient).getCprCanonicalRecordByLibraId(C_ID);
+        verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(C_ID);
+    }
+
+    @Test
+    void givenLookupInFlight_whenRequestedConcurrently_thenShareSingleCall() {
+        final var cprDefendant = CprDefendant.builder().cprUUID("cpr-uuid").build();
+        final Sinks.One<CprDefendant> response = Sinks.one();
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID)).thenReturn(response.asMono());
+
+        final var first = cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).toFuture();
+        final var second = cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).toFuture();
+        response.tryEmitValue(cprDefendant);
+
+        assertThat(first.join()).isEqualTo(cprDefendant);
+        assertThat(second.join()).isEqualTo(cprDefendant);
+        verify(cprServiceClient, times(1)).getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID);
+    }
+
+    @Test
+    void givenLookupFails_whenRequestedAgain_thenCallCprAgain() {
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID))
+                .thenReturn(Mono.error(new RuntimeException("bang!")))
+                .thenReturn(Mono.empty());
+
+        assertThatExceptionOfType(RuntimeException.class)
+                .isThrownBy(() -> cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).block());
+        cprCanonicalRecordService.getByCommonPlatformId(DEFENDANT_ID).block();
+
+        verify(cprServiceClient, times(2)).getCprCanonicalRecordByCommonPlatformId(DEFENDANT_ID);
+    }
+}
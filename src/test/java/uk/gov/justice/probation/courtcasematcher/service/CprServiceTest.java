@@ -1,5 +1,6 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,7 +22,9 @@ import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponse;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponses;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -38,11 +41,19 @@ public class CprServiceTest {
     @Mock
     private OffenderSearchRestClient offenderSearchRestClient;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private CprService cprService;
 
     @BeforeEach
     public void setup() {
-        cprService = new CprService(cprServiceClient, offenderSearchRestClient);
+        meterRegistry = new SimpleMeterRegistry();
+        cprService = new CprService(new CprCanonicalRecordService(cprServiceClient, meterRegistry, Duration.ZERO, Duration.ZERO, 0),
+            new OffenderSearchService(offenderSearchRestClient, meterRegistry, Duration.ZERO, 0),
+            meterRegistry,
+            new HearingStageTimer(meterRegistry),
+            4,
+            2);
     }
 
     @Test
@@ -52,7 +63,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
         assertThat(defendantFromInitialPayload.getSex()).isEqualTo("MALE");
@@ -71,7 +82,7 @@ public class CprServiceTest {
         Defendant defendantFromInitialPayload = Defendant.builder()
             .defendantId("1234").build();
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.empty());
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
         assertThat(defendantFromInitialPayload.getSex()).isEqualTo("NOT_KNOWN");
@@ -106,7 +117,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(cprDefendant));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
         assertThat(defendantFromInitialPayload.getSex()).isEqualTo("MALE");
@@ -132,7 +143,7 @@ public class CprServiceTest {
                     .croNumber("55555")
                     .pncNumber("66666")
                 .build()).build())).build()));
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
         assertThat(defendantFromInitialPayload.getGroupedOffenderMatches()
@@ -156,6 +167,20 @@ public class CprServiceTest {
             .getMatches().getLast().getMatchIdentifiers().getPnc()).isEqualTo("66666");
     }
 
+    @Test
+    public void shouldSearchAtMostMaxConcurrentOffenderSearchesCrnsAtATime() {
+        final var searchesStarted = new AtomicInteger();
+        when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.<SearchResponses>never().doOnSubscribe(subscription -> searchesStarted.incrementAndGet()));
+        final var cprDefendant = CprDefendant.builder()
+            .identifiers(CprIdentifier.builder().crns(List.of("1234567", "98765423", "7654321", "3456789")).build())
+            .build();
+
+        final var grouping = cprService.buildGroupedOffenderMatch(cprDefendant).subscribe();
+
+        assertThat(searchesStarted).hasValue(2);
+        grouping.dispose();
+    }
+
     @Test
     public void shouldBuildGroupedOffenderMatchWhenAliasHasNullMiddleNames() {
         Defendant defendantFromInitialPayload = Defendant.builder()
@@ -169,7 +194,7 @@ public class CprServiceTest {
                 .pncNumber("66666")
                 .build()).build())).build()));
 
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         assertThat(defendantFromInitialPayload.getGroupedOffenderMatches()
             .getMatches().getFirst().getMatchIdentifiers().getAliases().getFirst().getMiddleNames()).isNull();
@@ -183,7 +208,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendants(List.of(defendantFromInitialPayload, defendantWithNoDefendantId));
+        cprService.updateDefendants(List.of(defendantFromInitialPayload, defendantWithNoDefendantId)).block();
 
         verify(cprServiceClient, times(1)).getCprCanonicalRecordByCommonPlatformId("1234");
         verify(cprServiceClient, times(0)).getCprCanonicalRecordByLibraId(anyString());
@@ -197,7 +222,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByLibraId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendants(List.of(defendantFromInitialPayload, defendantWithNoCId));
+        cprService.updateDefendants(List.of(defendantFromInitialPayload, defendantWithNoCId)).block();
 
         verify(cprServiceClient, times(0)).getCprCanonicalRecordByCommonPlatformId(anyString());
         verify(cprServiceClient, times(1)).getCprCanonicalRecordByLibraId("5678");
@@ -213,12 +238,41 @@ public class CprServiceTest {
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(cprServiceClient.getCprCanonicalRecordByLibraId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendants(List.of(defendantWithId, defendantWithCId));
+        cprService.updateDefendants(List.of(defendantWithId, defendantWithCId)).block();
 
         verify(cprServiceClient, times(1)).getCprCanonicalRecordByCommonPlatformId("1234");
         verify(cprServiceClient, times(1)).getCprCanonicalRecordByLibraId("5678");
     }
 
+    @Test
+    public void shouldRecordEnrichmentLatencyForEachDefendant() {
+        Defendant defendantWithId = Defendant.builder()
+            .defendantId("1234").build();
+        Defendant defendantWithCId = Defendant.builder()
+            .cId("5678").build();
+
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
+        when(cprServiceClient.getCprCanonicalRecordByLibraId(anyString())).thenReturn(Mono.empty());
+        when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
+        cprService.updateDefendants(List.of(defendantWithId, defendantWithCId)).block();
+
+        assertThat(meterRegistry.timer(CprService.DEFENDANT_ENRICHMENT_TIMER).count()).isEqualTo(2);
+        assertThat(defendantWithId.getGroupedOffenderMatches().getMatches()).hasSize(2);
+    }
+
+    @Test
+    public void shouldOnlyTimeCprLookupsThatCallCpr() {
+        Defendant defendantWithId = Defendant.builder()
+            .defendantId("1234").build();
+        Defendant defendantWithNoIds = Defendant.builder().build();
+
+        when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.empty());
+        cprService.updateDefendant(defendantWithId).block();
+        cprService.updateDefendant(defendantWithNoIds).block();
+
+        assertThat(meterRegistry.find(HearingStageTimer.STAGE_TIMER).tag("stage", "cpr_lookup").timer().count()).isEqualTo(1);
+    }
+
     @Test
     public void shouldPrioritizeCIdOverDefendantId() {
         Defendant defendantWithBoth = Defendant.builder()
@@ -227,7 +281,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByLibraId(anyString())).thenReturn(Mono.just(getCprDefendant("1995-02-02")));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendants(List.of(defendantWithBoth));
+        cprService.updateDefendants(List.of(defendantWithBoth)).block();
 
         verify(cprServiceClient, times(0)).getCprCanonicalRecordByCommonPlatformId(anyString());
         verify(cprServiceClient, times(1)).getCprCanonicalRecordByLibraId("5678");
@@ -253,12 +307,13 @@ public class CprServiceTest {
                     .build())
                 .build()))
             .build()));
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
-        verify(offenderSearchRestClient, times(2)).search(anyString());
+        verify(offenderSearchRestClient, times(1)).search(anyString());
 
         assertThat(defendantFromInitialPayload.getCrn()).isEqualTo("1234567");
+        assertThat(meterRegistry.counter(OffenderSearchService.SEARCHES_SAVED_COUNTER).count()).isEqualTo(1);
     }
 
     @Test
@@ -268,7 +323,7 @@ public class CprServiceTest {
 
         when(cprServiceClient.getCprCanonicalRecordByCommonPlatformId(anyString())).thenReturn(Mono.just(getCprDefendant(null)));
         when(offenderSearchRestClient.search(anyString())).thenReturn(Mono.just(SearchResponses.builder().build()));
-        cprService.updateDefendant(defendantFromInitialPayload);
+        cprService.updateDefendant(defendantFromInitialPayload).block();
 
         verify(cprServiceClient).getCprCanonicalRecordByCommonPlatformId(anyString());
         assertThat(defendantFromInitialPayload.getSex()).isEqualTo("MALE");
@@ -1,12 +1,13 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
@@ -20,10 +21,12 @@ import uk.gov.justice.probation.courtcasematcher.restclient.OffenderSearchRestCl
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponse;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponses;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -59,8 +62,16 @@ class HearingServiceTest {
     private ArgumentCaptor<Hearing> courtCaseCaptor;
     @Mock
     private CourtCaseServiceClient courtCaseServiceClient;
-    @InjectMocks
+
     private CourtCaseService courtCaseService;
+
+    @BeforeEach
+    void setUp() {
+        courtCaseService = new CourtCaseService(courtCaseServiceClient,
+                new OffenderSearchService(offenderSearchRestClient, new SimpleMeterRegistry(), Duration.ZERO, 0),
+                telemetryService,
+                new HearingStageTimer(new SimpleMeterRegistry()));
+    }
     @DisplayName("Save court case. This must be existing because it has a case no and a case id.")
     @Test
     void whenSaveCourtCase() {
@@ -76,7 +87,7 @@ class HearingServiceTest {
         when(courtCaseServiceClient.putHearing(courtCase)).thenReturn(Mono.empty());
         when(courtCaseServiceClient.postOffenderMatches(CASE_ID, defendants)).thenReturn(Mono.empty());
 
-        courtCaseService.saveHearing(courtCase);
+        courtCaseService.saveHearing(courtCase).block();
 
         verify(courtCaseServiceClient).putHearing(courtCase);
         verify(courtCaseServiceClient).postOffenderMatches(CASE_ID, defendants);
@@ -96,7 +107,7 @@ class HearingServiceTest {
         when(courtCaseServiceClient.putHearing(courtCaseCaptor.capture())).thenReturn(Mono.empty());
         when(courtCaseServiceClient.postOffenderMatches(CASE_ID, defendants)).thenReturn(Mono.empty());
 
-        courtCaseService.saveHearing(courtCase);
+        courtCaseService.saveHearing(courtCase).block();
 
         verify(courtCaseServiceClient).putHearing(notNull());
 
@@ -128,7 +139,7 @@ class HearingServiceTest {
         when(courtCaseServiceClient.putHearing(courtCaseCaptor.capture())).thenReturn(Mono.empty());
         when(courtCaseServiceClient.postOffenderMatches(notNull(), notNull())).thenReturn(Mono.empty());
 
-        courtCaseService.saveHearing(courtCase);
+        courtCaseService.saveHearing(courtCase).block();
 
         verify(courtCaseServiceClient).putHearing(courtCaseCaptor.capture());
 
@@ -214,6 +225,28 @@ class HearingServiceTest {
     }
 
 
+    @DisplayName("Save only the changed defendants of an existing hearing")
+    @Test
+    void whenSaveDefendants_thenPutOnlyThoseDefendants() {
+        final var courtCase = Hearing.builder()
+                .hearingDays(Collections.singletonList(HearingDay.builder()
+                        .courtCode(COURT_CODE)
+                        .build()))
+                .defendants(defendants)
+                .caseId(CASE_ID)
+                .hearingId(HEARING_ID)
+                .caseNo(CASE_NO)
+                .build();
+        when(courtCaseServiceClient.putDefendant(HEARING_ID, DEFENDANT_2)).thenReturn(Mono.empty());
+        when(courtCaseServiceClient.postOffenderMatches(CASE_ID, List.of(DEFENDANT_2))).thenReturn(Mono.empty());
+
+        courtCaseService.saveDefendants(courtCase, Set.of(DEFENDANT_UUID_2)).block();
+
+        verify(courtCaseServiceClient).putDefendant(HEARING_ID, DEFENDANT_2);
+        verify(courtCaseServiceClient).postOffenderMatches(CASE_ID, List.of(DEFENDANT_2));
+        verifyNoMoreInteractions(courtCaseServiceClient);
+    }
+
     @DisplayName("Do not save a search responses if case put fails.")
     @Test
     void givenSearchResponse_whenCreateCourtCaseFails_thenPostMatches() {
@@ -229,7 +262,7 @@ class HearingServiceTest {
         when(courtCaseServiceClient.putHearing(courtCase)).thenThrow(new RuntimeException("bang!"));
 
         assertThatExceptionOfType(RuntimeException.class)
-                .isThrownBy(() -> courtCaseService.saveHearing(courtCase))
+                .isThrownBy(() -> courtCaseService.saveHearing(courtCase).block())
                 .withMessage("bang!");
 
         verify(courtCaseServiceClient).putHearing(courtCase);
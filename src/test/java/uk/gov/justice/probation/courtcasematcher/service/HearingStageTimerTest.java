@@ -0,0 +1,101 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.model.domain.HearingDay;
+import uk.gov.justice.probation.courtcasematcher.service.HearingStageTimer.Stage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class HearingStageTimerTest {
+
+    private static final Hearing HEARING = Hearing.builder()
+            .source(DataSource.COMMON_PLATFORM)
+            .hearingDays(List.of(HearingDay.builder().courtCode("B10JQ").build()))
+            .build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private HearingStageTimer hearingStageTimer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hearingStageTimer = new HearingStageTimer(meterRegistry);
+    }
+
+    @Test
+    void givenHearingInContext_whenMonoCompletes_thenRecordWithHearingTags() {
+        final var result = hearingStageTimer.time(Stage.PUT_HEARING, Mono.just("saved"))
+                .contextWrite(HearingStageTimer.withHearingTags(HEARING))
+                .block();
+
+        assertThat(result).isEqualTo("saved");
+        assertThat(timerCount("put_hearing", "COMMON_PLATFORM", "B10JQ")).isEqualTo(1);
+    }
+
+    @Test
+    void givenNoHearingInContext_whenMonoFails_thenRecordWithUnknownTags() {
+        final Mono<String> failing = hearingStageTimer.time(Stage.FIND_HEARING, Mono.error(new IllegalStateException("boom")));
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(failing::block);
+        assertThat(timerCount("find_hearing", "UNKNOWN", "UNKNOWN")).isEqualTo(1);
+    }
+
+    @Test
+    void givenMonoSubscribedTwice_whenComplete_thenRecordEachSubscription() {
+        final var timed = hearingStageTimer.time(Stage.CPR_LOOKUP, Mono.just("defendant"))
+                .contextWrite(HearingStageTimer.withHearingTags(HEARING));
+
+        timed.block();
+        timed.block();
+
+        assertThat(timerCount("cpr_lookup", "COMMON_PLATFORM", "B10JQ")).isEqualTo(2);
+    }
+
+    @Test
+    void givenHearingWithoutHearingDays_whenTimed_thenTagCourtCodeAsUnknown() {
+        final var hearing = Hearing.builder().source(DataSource.LIBRA).build();
+
+        final var result = hearingStageTimer.time(Stage.COMPARISON, hearing, () -> "compared");
+
+        assertThat(result).isEqualTo("compared");
+        assertThat(timerCount("comparison", "LIBRA", "UNKNOWN")).isEqualTo(1);
+    }
+
+    @Test
+    void givenSourceAndCourtCode_whenSampleStopped_thenRecordWithThoseTags() {
+        final var sample = hearingStageTimer.start();
+
+        hearingStageTimer.stop(sample, Stage.SNS_PARSE, DataSource.LIBRA, "B01CX");
+
+        assertThat(timerCount("sns_parse", "LIBRA", "B01CX")).isEqualTo(1);
+    }
+
+    @Test
+    void whenTimed_thenPublishPercentileHistogramWithoutCourtCode() {
+        hearingStageTimer.time(Stage.S3_FETCH, HEARING, () -> "fetched");
+
+        final var histogram = meterRegistry.get(HearingStageTimer.STAGE_HISTOGRAM).tag("stage", "s3_fetch").timer();
+        assertThat(histogram.getId().getTag("source")).isEqualTo("COMMON_PLATFORM");
+        assertThat(histogram.getId().getTag("court_code")).isNull();
+        assertThat(histogram.count()).isEqualTo(1);
+        assertThat(histogram.takeSnapshot().histogramCounts()).isNotEmpty();
+        assertThat(meterRegistry.get(HearingStageTimer.STAGE_TIMER).tag("stage", "s3_fetch").timer().takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    private long timerCount(String stage, String source, String courtCode) {
+        return meterRegistry.get(HearingStageTimer.STAGE_TIMER)
+                .tag("stage", stage)
+                .tag("source", source)
+                .tag("court_code", courtCode)
+                .timer()
+                .count();
+    }
+}
@@ -0,0 +1,126 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import uk.gov.justice.probation.courtcasematcher.restclient.OffenderSearchRestClient;
+import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.SearchResponses;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OffenderSearchServiceTest {
+
+    private static final String CRN = "X340741";
+    private static final String CRN_2 = "X340742";
+
+    @Mock
+    private OffenderSearchRestClient offenderSearchRestClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OffenderSearchService offenderSearchService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        offenderSearchService = new OffenderSearchService(offenderSearchRestClient, meterRegistry, Duration.ZERO, 0);
+    }
+
+    @Test
+    void givenHearingScope_whenSameCrnSearchedTwice_thenSearchOnce() {
+        final var searchResponses = SearchResponses.builder().build();
+        when(offenderSearchRestClient.search(CRN)).thenReturn(Mono.just(searchResponses));
+
+        final var results = offenderSearchService.search(CRN)
+                .concatWith(offenderSearchService.search(CRN))
+                .collectList()
+                .contextWrite(OffenderSearchService::openHearingScope)
+                .block();
+
+        assertThat(results).containsExactly(searchResponses, searchResponses);
+        verify(offenderSearchRestClient, times(1)).search(CRN);
+        assertThat(meterRegistry.counter(OffenderSearchService.SEARCHES_SAVED_COUNTER).count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenHearingScope_whenDifferentCrnsSearched_thenSearchEach() {
+        when(offenderSearchRestClient.search(CRN)).thenReturn(Mono.just(SearchResponses.builder().build()));
+        when(offenderSearchRestClient.search(CRN_2)).thenReturn(Mono.just(SearchResponses.builder().build()));
+
+        offenderSearchService.search(CRN)
+                .concatWith(offenderSearchService.search(CRN_2))
+                .then()
+                .contextWrite(OffenderSearchService::openHearingScope)
+                .block();
+
+        verify(offenderSearchRestClient).search(CRN);
+        verify(offenderSearchRestClient).search(CRN_2);
+        assertThat(meterRegistry.counter(OffenderSearchService.SEARCHES_SAVED_COUNTER).count()).isZero();
+    }
+
+    @Test
+    void givenNoHearingScope_whenSameCrnSearchedTwice_thenSearchEachTime() {
+        when(offenderSearchRestClient.search(CRN)).thenReturn(Mono.just(SearchResponses.builder().build()));
+
+        offenderSearchService.search(CRN).block();
+        offenderSearchService.search(CRN).block();
+
+        verify(offenderSearchRestClient, times(2)).search(CRN);
+    }
+
+    @Nested
+    class GivenSharedCacheEnabled {
+
+        @BeforeEach
+        void setUp() {
+            offenderSearchService = new OffenderSearchService(offenderSearchRestClient, meterRegistry, Duration.ofMinutes(5), 100);
+        }
+
+        @Test
+        void whenSameCrnSearchedInSeparateHearings_thenSearchOnce() {
+            when(offenderSearchRestClient.search(CRN)).thenReturn(Mono.just(SearchResponses.builder().build()));
+
+            offenderSearchService.search(CRN).contextWrite(OffenderSearchService::openHearingScope).block();
+            offenderSearchService.search(CRN).contextWrite(OffenderSearchService::openHearingScope).block();
+
+            verify(offenderSearchRestClient, times(1)).search(CRN);
+            assertThat(meterRegistry.get("cache.gets").tag("cache", OffenderSearchService.SHARED_CACHE_NAME).tag("result", "hit").functionCounter().count())
+                    .isEqualTo(1);
+        }
+
+        @Test
+        void whenBypassRequested_thenSearchEachTime() {
+            when(offenderSearchRestClient.search(CRN)).thenReturn(Mono.just(SearchResponses.builder().build()));
+
+            offenderSearchService.search(CRN).block();
+            offenderSearchService.search(CRN).contextWrite(OffenderSearchService::bypassSharedCache).block();
+
+            verify(offenderSearchRestClient, times(2)).search(CRN);
+        }
+
+        @Test
+        void whenSearchFails_thenDoNotCacheFailure() {
+            when(offenderSearchRestClient.search(CRN))
+                    .thenReturn(Mono.error(new RuntimeException("bang!")))
+                    .thenReturn(Mono.just(SearchResponses.builder().build()));
+
+            assertThatExceptionOfType(RuntimeException.class)
+                    .isThrownBy(() -> offenderSearchService.search(CRN).block());
+            assertThat(offenderSearchService.search(CRN).block()).isNotNull();
+
+            verify(offenderSearchRestClient, times(2)).search(CRN);
+        }
+    }
+}
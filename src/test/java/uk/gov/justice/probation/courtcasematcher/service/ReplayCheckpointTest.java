@@ -0,0 +1,77 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplayCheckpointTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void givenEntriesCompleted_whenReopened_thenTheyAreStillCompleted() throws IOException {
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            checkpoint.markCompleted(0);
+            checkpoint.markCompleted(2);
+        }
+
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            assertThat(checkpoint.isCompleted(0)).isTrue();
+            assertThat(checkpoint.isCompleted(1)).isFalse();
+            assertThat(checkpoint.isCompleted(2)).isTrue();
+            assertThat(checkpoint.getCompletedCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void givenDifferentReplayName_whenOpened_thenStartFromNothing() throws IOException {
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            checkpoint.markCompleted(0);
+        }
+
+        try (var checkpoint = ReplayCheckpoint.open(directory, "another-replay")) {
+            assertThat(checkpoint.getCompletedCount()).isZero();
+        }
+    }
+
+    @Test
+    void givenLastLineCutShort_whenReopened_thenIgnoreItAndCarryOnRecording() throws IOException {
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            checkpoint.markCompleted(4);
+        }
+        try (var files = Files.list(directory)) {
+            final var file = files.findFirst().orElseThrow();
+            Files.writeString(file, "1x", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        }
+
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            assertThat(checkpoint.getCompletedCount()).isEqualTo(1);
+            checkpoint.markCompleted(5);
+        }
+
+        try (var checkpoint = ReplayCheckpoint.open(directory, "replay")) {
+            assertThat(checkpoint.isCompleted(4)).isTrue();
+            assertThat(checkpoint.isCompleted(5)).isTrue();
+        }
+    }
+
+    @Test
+    void whenDeleted_thenRemoveTheFile() throws IOException {
+        final var checkpoint = ReplayCheckpoint.open(directory, "replay");
+        checkpoint.markCompleted(0);
+
+        checkpoint.delete();
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+}
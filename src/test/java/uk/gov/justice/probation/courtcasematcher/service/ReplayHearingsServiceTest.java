@@ -0,0 +1,205 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import uk.gov.justice.probation.courtcasematcher.controller.Hearing404;
+import uk.gov.justice.probation.courtcasematcher.messaging.CommonPlatformHearingReader;
+import uk.gov.justice.probation.courtcasematcher.messaging.HearingProcessor;
+import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
+import uk.gov.justice.probation.courtcasematcher.restclient.CourtCaseServiceClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplayHearingsServiceTest {
+
+    private static final String BUCKET_NAME = "bucket-name";
+    private static final LocalDateTime RECEIVED = LocalDateTime.of(2024, 9, 19, 16, 32, 4);
+
+    @Mock
+    private CourtCaseServiceClient courtCaseServiceClient;
+    @Mock
+    private S3PayloadCache s3PayloadCache;
+    @Mock
+    private CommonPlatformHearingReader commonPlatformHearingReader;
+    @Mock
+    private HearingProcessor hearingProcessor;
+    @Mock
+    private TelemetryService telemetryService;
+
+    @TempDir
+    private Path checkpointDirectory;
+
+    private ReplayHearingsService replayHearingsService;
+
+    @BeforeEach
+    void setUp() {
+        replayHearingsService = new ReplayHearingsService(courtCaseServiceClient, s3PayloadCache, BUCKET_NAME,
+                commonPlatformHearingReader, hearingProcessor, false, telemetryService, 4, 8, 2, 0, 0, checkpointDirectory.toString());
+    }
+
+    @Test
+    void givenNewAndOutdatedHearings_whenReplayed_thenProcessOnlyTheNewOne() throws IOException {
+        givenNewHearing("new-hearing");
+        when(courtCaseServiceClient.getHearing("outdated-hearing"))
+                .thenReturn(Mono.just(Hearing.builder().lastUpdated(RECEIVED.plusDays(1)).build()));
+
+        final var job = job();
+        replayHearingsService.replay(job, Flux.just(hearing404("new-hearing"), hearing404("outdated-hearing"))).block();
+
+        verify(hearingProcessor).process(any(Hearing.class), eq("pic4207-data-fix"));
+        verify(s3PayloadCache, never()).getObject(eq(BUCKET_NAME), eq("outdated-hearing.json"), any());
+        verify(telemetryService).track404HearingProcessedEvent(properties("new-hearing", Replay404HearingProcessStatus.SUCCEEDED));
+        verify(telemetryService).track404HearingProcessedEvent(properties("outdated-hearing", Replay404HearingProcessStatus.OUTDATED));
+        assertThat(job.summary().getStatusCounts())
+                .containsEntry(Replay404HearingProcessStatus.SUCCEEDED, 1L)
+                .containsEntry(Replay404HearingProcessStatus.OUTDATED, 1L);
+        assertThat(job.summary().getStageLatencies().get(ReplayJob.Stage.LOOKUP).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenInvalidAndFailingHearings_whenReplayed_thenReportEachAndCarryOn() throws IOException {
+        final var violation = new ConstraintViolationException("hearing.prosecutionCases: must not be empty", Collections.emptySet());
+        when(courtCaseServiceClient.getHearing(anyString())).thenReturn(Mono.empty());
+        when(s3PayloadCache.getObject(eq(BUCKET_NAME), eq("invalid-hearing.json"), any())).thenThrow(violation);
+        when(s3PayloadCache.getObject(eq(BUCKET_NAME), eq("missing-hearing.json"), any())).thenThrow(new IOException("not found"));
+        givenPayload("new-hearing");
+
+        replayHearingsService.replay(job(), Flux.just(hearing404("invalid-hearing"), hearing404("missing-hearing"), hearing404("new-hearing"))).block();
+
+        verify(telemetryService).track404HearingProcessedEvent(properties("invalid-hearing", Replay404HearingProcessStatus.INVALID,
+                "hearing.prosecutionCases: must not be empty"));
+        verify(telemetryService).track404HearingProcessedEvent(properties("missing-hearing", Replay404HearingProcessStatus.FAILED, "not found"));
+        verify(telemetryService).track404HearingProcessedEvent(properties("new-hearing", Replay404HearingProcessStatus.SUCCEEDED));
+    }
+
+    @Test
+    void givenReplayInterrupted_whenReplayedAgain_thenSkipTheEntriesAlreadyFinished() throws IOException {
+        try (var checkpoint = ReplayCheckpoint.open(checkpointDirectory, "replay")) {
+            checkpoint.markCompleted(0);
+        }
+        givenNewHearing("second-hearing");
+
+        replayHearingsService.replay(job(), Flux.just(hearing404("first-hearing"), hearing404("second-hearing"))).block();
+
+        verify(courtCaseServiceClient, never()).getHearing("first-hearing");
+        verify(hearingProcessor, times(1)).process(any(Hearing.class), anyString());
+    }
+
+    @Test
+    void givenMoreHearingsThanTheWindow_whenReplayed_thenLookUpTheNextWindowOnlyWhenTheFirstIsDone() throws IOException {
+        final var firstLookup = Sinks.<Hearing>empty();
+        when(courtCaseServiceClient.getHearing("first-hearing")).thenReturn(firstLookup.asMono());
+        givenPayload("first-hearing");
+        givenNewHearing("second-hearing");
+        givenNewHearing("third-hearing");
+
+        final var replay = replayHearingsService.replay(job(),
+                Flux.just(hearing404("first-hearing"), hearing404("second-hearing"), hearing404("third-hearing"))).toFuture();
+
+        verify(courtCaseServiceClient).getHearing("second-hearing");
+        verify(courtCaseServiceClient, never()).getHearing("third-hearing");
+        firstLookup.tryEmitEmpty();
+        replay.join();
+        verify(courtCaseServiceClient).getHearing("third-hearing");
+        verify(hearingProcessor, times(3)).process(any(Hearing.class), eq("pic4207-data-fix"));
+    }
+
+    @Test
+    void givenJobPaused_whenReplayed_thenWaitUntilItIsResumed() throws IOException {
+        givenNewHearing("new-hearing");
+        final var job = job();
+        job.pause();
+
+        final var replay = replayHearingsService.replay(job, Flux.just(hearing404("new-hearing"))).toFuture();
+
+        verify(courtCaseServiceClient, never()).getHearing(anyString());
+        job.resume();
+        replay.join();
+        verify(hearingProcessor).process(any(Hearing.class), eq("pic4207-data-fix"));
+    }
+
+    @Test
+    void whenReplayFinishes_thenDeleteTheCheckpoint() throws IOException {
+        givenNewHearing("new-hearing");
+
+        replayHearingsService.replay(job(), Flux.just(hearing404("new-hearing"))).block();
+
+        try (var files = Files.list(checkpointDirectory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    void givenAHearingFailed_whenReplayedAgain_thenRetryOnlyTheFailedHearing() throws IOException {
+        givenNewHearing("new-hearing");
+        when(courtCaseServiceClient.getHearing("failing-hearing"))
+                .thenReturn(Mono.error(new IllegalStateException("court-case-service unavailable")))
+                .thenReturn(Mono.empty());
+        givenPayload("failing-hearing");
+        final var hearings = Flux.just(hearing404("new-hearing"), hearing404("failing-hearing"));
+
+        replayHearingsService.replay(job(), hearings).block();
+        replayHearingsService.replay(job(), hearings).block();
+
+        verify(courtCaseServiceClient, times(1)).getHearing("new-hearing");
+        verify(courtCaseServiceClient, times(2)).getHearing("failing-hearing");
+        verify(telemetryService).track404HearingProcessedEvent(properties("failing-hearing", Replay404HearingProcessStatus.FAILED,
+                "court-case-service unavailable"));
+        verify(telemetryService).track404HearingProcessedEvent(properties("failing-hearing", Replay404HearingProcessStatus.SUCCEEDED));
+        try (var files = Files.list(checkpointDirectory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    private void givenNewHearing(String hearingId) throws IOException {
+        when(courtCaseServiceClient.getHearing(hearingId)).thenReturn(Mono.empty());
+        givenPayload(hearingId);
+    }
+
+    private void givenPayload(String hearingId) throws IOException {
+        when(s3PayloadCache.getObject(eq(BUCKET_NAME), eq(hearingId + ".json"), any()))
+                .thenReturn(List.of(Hearing.builder().caseId("case-id").hearingId(hearingId).build()));
+        when(hearingProcessor.process(any(Hearing.class), anyString())).thenReturn(Mono.empty());
+    }
+
+    private static ReplayJob job() {
+        return new ReplayJob("id", "replay", 0, List::of, () -> 0, Clock.systemUTC());
+    }
+
+    private static Hearing404 hearing404(String hearingId) {
+        return new Hearing404(hearingId, hearingId + ".json", RECEIVED);
+    }
+
+    private static Map<String, String> properties(String hearingId, Replay404HearingProcessStatus status) {
+        return Map.of("hearingId", hearingId, "status", status.status, "dryRun", "false");
+    }
+
+    private static Map<String, String> properties(String hearingId, Replay404HearingProcessStatus status, String reason) {
+        return Map.of("hearingId", hearingId, "status", status.status, "dryRun", "false", "reason", reason);
+    }
+}
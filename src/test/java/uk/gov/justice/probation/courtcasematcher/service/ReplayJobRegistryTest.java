@@ -0,0 +1,57 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.gov.justice.probation.courtcasematcher.controller.Hearing404;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplayJobRegistryTest {
+
+    @Mock
+    private ReplayHearingsService replayHearingsService;
+
+    private ReplayJobRegistry replayJobRegistry;
+
+    @BeforeEach
+    void setUp() {
+        replayJobRegistry = new ReplayJobRegistry(replayHearingsService, 1, Clock.systemUTC());
+    }
+
+    @Test
+    void givenAReplayWithTheSameNameIsRunning_whenStarted_thenDoNotStartAnother() {
+        when(replayHearingsService.replay(any(ReplayJob.class), any())).thenReturn(Mono.never());
+        final var running = start("replay");
+
+        assertThat(running).isPresent();
+        assertThat(start("replay")).isEmpty();
+        assertThat(start("another-replay")).isPresent();
+    }
+
+    @Test
+    void givenAReplayWithTheSameNameHasFinished_whenStarted_thenStartANewOne() {
+        when(replayHearingsService.replay(any(ReplayJob.class), any())).thenReturn(Mono.empty());
+        final var finished = start("replay").orElseThrow();
+
+        final var restarted = start("replay").orElseThrow();
+
+        assertThat(restarted.getId()).isNotEqualTo(finished.getId());
+        assertThat(replayJobRegistry.getJob(restarted.getId())).contains(restarted);
+    }
+
+    private Optional<ReplayJob> start(String name) {
+        return replayJobRegistry.start(name, Flux.<Hearing404>empty(), 0, List::of, () -> 0);
+    }
+}
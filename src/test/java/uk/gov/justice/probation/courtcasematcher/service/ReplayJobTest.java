@@ -0,0 +1,142 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplayJobTest {
+
+    private static final Instant START = Instant.parse("2024-09-19T16:32:00Z");
+
+    private final MutableClock clock = new MutableClock(START);
+
+    @Test
+    void whenPaused_thenWaitUntilResumed() {
+        final var job = job(0);
+
+        assertThat(job.pause()).isTrue();
+        assertThat(job.pause()).isFalse();
+        final var whenRunning = job.whenRunning().toFuture();
+
+        assertThat(whenRunning).isNotDone();
+        assertThat(job.resume()).isTrue();
+        assertThat(job.resume()).isFalse();
+        assertThat(whenRunning).isDone();
+        assertThat(job.getState()).isEqualTo(ReplayJob.State.RUNNING);
+    }
+
+    @Test
+    void whenCancelled_thenStopTheReplayAndReleaseAnyPausedEntries() {
+        final var replay = Sinks.<Void>empty();
+        final var job = job(0);
+        job.start(replay.asMono());
+        job.pause();
+        final var whenRunning = job.whenRunning().toFuture();
+
+        assertThat(job.cancel()).isTrue();
+
+        assertThat(whenRunning).isDone();
+        assertThat(replay.currentSubscriberCount()).isZero();
+        assertThat(job.getState()).isEqualTo(ReplayJob.State.CANCELLED);
+        assertThat(job.cancel()).isFalse();
+        assertThat(job.pause()).isFalse();
+    }
+
+    @Test
+    void whenReplayFinishes_thenRecordTheOutcome() {
+        final var completed = job(0);
+        completed.start(Mono.empty());
+        final var failed = job(0);
+        failed.start(Mono.error(new IllegalStateException("failed")));
+
+        assertThat(completed.getState()).isEqualTo(ReplayJob.State.COMPLETED);
+        assertThat(completed.summary().getFinishedAt()).isEqualTo(START);
+        assertThat(failed.getState()).isEqualTo(ReplayJob.State.FAILED);
+        assertThat(failed.cancel()).isFalse();
+    }
+
+    @Test
+    void givenHearingsCompleted_thenSummariseRateAndTimeRemaining() {
+        final var job = job(1_000);
+        job.resumedFromCheckpoint(100);
+        for (int second = 0; second < 10; second++) {
+            for (int i = 0; i < 5; i++) {
+                job.recordStatus(Replay404HearingProcessStatus.SUCCEEDED);
+            }
+            clock.advance(Duration.ofSeconds(1));
+        }
+        job.recordStatus(Replay404HearingProcessStatus.OUTDATED);
+
+        final var summary = job.summary();
+
+        assertThat(summary.getStatusCounts())
+                .containsEntry(Replay404HearingProcessStatus.SUCCEEDED, 50L)
+                .containsEntry(Replay404HearingProcessStatus.OUTDATED, 1L)
+                .containsEntry(Replay404HearingProcessStatus.FAILED, 0L);
+        // The hearing finished in the current second isn't counted in the rate yet
+        assertThat(summary.getRatePerSecond()).isEqualTo(5.0);
+        assertThat(summary.getEstimatedTimeRemaining()).isEqualTo(Duration.ofSeconds(170));
+    }
+
+    @Test
+    void givenHearingsCompletedLongAgo_thenLeaveThemOutOfTheRate() {
+        final var job = job(1_000);
+        job.recordStatus(Replay404HearingProcessStatus.SUCCEEDED);
+        clock.advance(Duration.ofSeconds(ReplayJob.RATE_WINDOW_SECONDS + 30));
+
+        assertThat(job.currentRate()).isZero();
+        assertThat(job.summary().getEstimatedTimeRemaining()).isNull();
+    }
+
+    @Test
+    void givenStagesTimed_thenSummariseTheirLatency() {
+        final var job = job(0);
+        job.recordStage(ReplayJob.Stage.FETCH, Duration.ofMillis(10));
+        job.recordStage(ReplayJob.Stage.FETCH, Duration.ofMillis(30));
+
+        final var latencies = job.summary().getStageLatencies();
+
+        assertThat(latencies.get(ReplayJob.Stage.FETCH)).isEqualTo(new ReplayJobSummary.StageLatencySummary(2, 20.0, 30.0));
+        assertThat(latencies.get(ReplayJob.Stage.PROCESS)).isEqualTo(new ReplayJobSummary.StageLatencySummary(0, 0.0, 0.0));
+    }
+
+    private ReplayJob job(long expectedTotal) {
+        return new ReplayJob("id", "replay", expectedTotal, List::of, () -> 0, clock);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
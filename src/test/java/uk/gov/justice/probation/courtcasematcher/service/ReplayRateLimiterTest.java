@@ -0,0 +1,37 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplayRateLimiterTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    @Test
+    void givenPermitsTakenTogether_whenReserved_thenSpaceThemOut() {
+        final var rateLimiter = new ReplayRateLimiter(10);
+
+        assertThat(rateLimiter.reserve(NOW)).isEqualTo(Duration.ZERO);
+        assertThat(rateLimiter.reserve(NOW)).isEqualTo(Duration.ofMillis(100));
+        assertThat(rateLimiter.reserve(NOW)).isEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void givenIdleLongerThanTheInterval_whenReserved_thenDoNotWait() {
+        final var rateLimiter = new ReplayRateLimiter(10);
+
+        rateLimiter.reserve(NOW);
+
+        assertThat(rateLimiter.reserve(NOW + Duration.ofSeconds(1).toNanos())).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void givenNoRate_whenAcquired_thenCompleteImmediately() {
+        final var rateLimiter = new ReplayRateLimiter(0);
+
+        assertThat(rateLimiter.acquire().block(Duration.ofSeconds(1))).isNull();
+    }
+}
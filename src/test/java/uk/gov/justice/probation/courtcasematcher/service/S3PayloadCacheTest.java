@@ -0,0 +1,209 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.io.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class S3PayloadCacheTest {
+
+    private static final String BUCKET_NAME = "bucket-name";
+
+    @Mock
+    private S3Client s3Client;
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void givenObjectReadBefore_whenRead_thenCacheItAndReadItFromDiskAfterwards() throws IOException {
+        final var cache = cache(DataSize.ofKilobytes(1));
+        givenObject("key", "etag-1", "Hello World");
+
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+        assertThat(meterRegistry.counter(S3PayloadCache.REQUESTS_COUNTER, "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(S3PayloadCache.REQUESTS_COUNTER, "result", "miss").count()).isEqualTo(2);
+        assertThat(meterRegistry.get(S3PayloadCache.BYTES_SAVED_COUNTER).counter().count()).isEqualTo(11);
+        assertThat(meterRegistry.get(S3PayloadCache.HIT_RATIO_GAUGE).gauge().value()).isEqualTo(1.0 / 3);
+        assertThat(cache.getSizeBytes()).isEqualTo(11);
+    }
+
+    @Test
+    void givenObjectNotReadBefore_whenRead_thenStreamFromS3WithoutHeadOrCaching() throws IOException {
+        final var cache = cache(DataSize.ofKilobytes(1));
+        givenObject("key", "etag-1", "Hello World");
+
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+        assertThat(cache.getSizeBytes()).isZero();
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    void givenObjectChanged_whenRead_thenDownloadTheNewVersion() throws IOException {
+        final var cache = cache(DataSize.ofKilobytes(1), Duration.ZERO);
+        givenObject("key", "etag-1", "Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+
+        givenObject("key", "etag-2", "Goodbye World");
+        assertThat(read(cache, "key")).isEqualTo("Goodbye World");
+
+        verify(s3Client, times(3)).getObject(any(GetObjectRequest.class));
+        assertThat(meterRegistry.get(S3PayloadCache.HEAD_REQUESTS_COUNTER).counter().count()).isEqualTo(2);
+        assertThat(cache.getSizeBytes()).isEqualTo(13);
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void givenObjectChangedSinceItsETagWasFetched_whenRead_thenReadTheNewVersion() throws IOException {
+        final var cache = cache(DataSize.ofKilobytes(1));
+        givenObject("key", "etag-1", "Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+
+        givenObject("key", "etag-2", "Goodbye World");
+        when(s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET_NAME).key("key").ifMatch("etag-1").build()))
+                .thenThrow(S3Exception.builder().statusCode(412).build());
+
+        assertThat(read(cache, "key")).isEqualTo("Goodbye World");
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    void givenCacheFull_whenRead_thenEvictTheLeastRecentlyUsedObject() throws IOException {
+        final var cache = cache(DataSize.ofBytes(25));
+        givenObject("first", "etag", "0123456789");
+        givenObject("second", "etag", "abcdefghij");
+        readTwice(cache, "first");
+        readTwice(cache, "second");
+        read(cache, "first");
+
+        givenObject("third", "etag", "ABCDEFGHIJ");
+        readTwice(cache, "third");
+
+        assertThat(cache.getSizeBytes()).isEqualTo(20);
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+        read(cache, "first");
+        assertThat(meterRegistry.counter(S3PayloadCache.REQUESTS_COUNTER, "result", "hit").count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenObjectLargerThanCache_whenRead_thenStreamFromS3WithoutCaching() throws IOException {
+        final var cache = cache(DataSize.ofBytes(5));
+        givenObject("key", "etag", "Hello World");
+
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+
+        assertThat(cache.getSizeBytes()).isZero();
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    void givenCacheDisabled_whenRead_thenStreamFromS3() throws IOException {
+        final var cache = cache(DataSize.ofBytes(0));
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> response("etag", "Hello World"));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(read(cache, "key")).isEqualTo("Hello World");
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void givenObjectsCachedBeforeRestart_whenRead_thenCheckTheETagAndReadFromDisk() throws IOException {
+        givenObject("key", "etag", "Hello World");
+        readTwice(cache(DataSize.ofKilobytes(1)), "key");
+        Files.writeString(directory.resolve("entrywithoutkey"), "stale");
+
+        final var restarted = cache(DataSize.ofKilobytes(1));
+
+        assertThat(restarted.getSizeBytes()).isEqualTo(11);
+        assertThat(read(restarted, "key")).isEqualTo("Hello World");
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        verify(s3Client, times(1)).headObject(any(HeadObjectRequest.class));
+        assertThat(directory.resolve("entrywithoutkey")).doesNotExist();
+    }
+
+    private S3PayloadCache cache(DataSize maxSize) throws IOException {
+        return cache(maxSize, Duration.ofMinutes(1));
+    }
+
+    private S3PayloadCache cache(DataSize maxSize, Duration eTagTtl) throws IOException {
+        return new S3PayloadCache(s3Client, meterRegistry, directory.toString(), maxSize, eTagTtl, 100);
+    }
+
+    private void givenObject(String key, String eTag, String content) {
+        lenient().when(s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET_NAME).key(key).build()))
+                .thenAnswer(invocation -> response(eTag, content));
+        lenient().when(s3Client.headObject(HeadObjectRequest.builder().bucket(BUCKET_NAME).key(key).build()))
+                .thenReturn(HeadObjectResponse.builder().eTag(eTag).contentLength((long) content.length()).build());
+        lenient().when(s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET_NAME).key(key).ifMatch(eTag).build()))
+                .thenAnswer(invocation -> response(eTag, content));
+    }
+
+    private static void readTwice(S3PayloadCache cache, String key) throws IOException {
+        read(cache, key);
+        read(cache, key);
+    }
+
+    private static String read(S3PayloadCache cache, String key) throws IOException {
+        return cache.getObject(BUCKET_NAME, key, inputStream -> new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static ResponseInputStream<GetObjectResponse> response(String eTag, String content) {
+        return new ResponseInputStream<>(GetObjectResponse.builder().eTag(eTag).contentLength((long) content.length()).build(),
+                AbortableInputStream.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+    }
+}
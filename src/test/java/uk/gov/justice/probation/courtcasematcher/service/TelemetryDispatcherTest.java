@@ -0,0 +1,147 @@
+package uk.gov.justice.probation.courtcasematcher.service;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.justice.probation.courtcasematcher.application.TelemetrySampling;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TelemetryDispatcherTest {
+
+    // Long enough that the scheduled flush never runs during a test
+    private static final Duration FLUSH_INTERVAL = Duration.ofHours(1);
+
+    @Mock
+    private TelemetryClient telemetryClient;
+
+    private TelemetrySampling telemetrySampling;
+    private SimpleMeterRegistry meterRegistry;
+    private TelemetryDispatcher telemetryDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        telemetrySampling = new TelemetrySampling();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        telemetryDispatcher.shutdown();
+    }
+
+    @Test
+    void whenEventTracked_thenSendOnFlushNotOnTheCallingThread() {
+        telemetryDispatcher = dispatcher(10, 10);
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, () -> Map.of("caseId", "1234"));
+
+        verifyNoInteractions(telemetryClient);
+        assertThat(telemetryDispatcher.getBuffered()).isEqualTo(1);
+
+        telemetryDispatcher.flush();
+
+        verify(telemetryClient).trackEvent("PiCHearingReceived", Map.of("caseId", "1234"), Collections.emptyMap());
+        assertThat(telemetryDispatcher.getBuffered()).isZero();
+    }
+
+    @Test
+    void givenMoreEventsThanOneBatch_whenFlushed_thenSendAllInOrder() {
+        telemetryDispatcher = dispatcher(10, 2);
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, () -> Map.of("caseId", "1"));
+        telemetryDispatcher.track(TelemetryEventType.HEARING_CHANGED, () -> Map.of("caseId", "2"));
+        telemetryDispatcher.track(TelemetryEventType.COURT_LIST_RECEIVED);
+        telemetryDispatcher.flush();
+
+        final InOrder inOrder = inOrder(telemetryClient);
+        inOrder.verify(telemetryClient).trackEvent("PiCHearingReceived", Map.of("caseId", "1"), Collections.emptyMap());
+        inOrder.verify(telemetryClient).trackEvent("PiCHearingChanged", Map.of("caseId", "2"), Collections.emptyMap());
+        inOrder.verify(telemetryClient).trackEvent("PiCCourtListReceived");
+    }
+
+    @Test
+    void givenBufferFull_whenEventTracked_thenDropAndCount() {
+        telemetryDispatcher = dispatcher(2, 10);
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+
+        assertThat(telemetryDispatcher.getBuffered()).isEqualTo(2);
+        assertThat(meterRegistry.get(TelemetryDispatcher.DROPPED_COUNTER).counter().count()).isEqualTo(1);
+
+        telemetryDispatcher.flush();
+        verify(telemetryClient, times(2)).trackEvent(eq("PiCHearingReceived"), anyMap(), anyMap());
+    }
+
+    @Test
+    void givenEventTypeSampledOut_whenTracked_thenDoNotBuildPropertiesOrSend() {
+        telemetrySampling.setSampleRate(TelemetryEventType.HEARING_MESSAGE_RECEIVED, 0.0);
+        telemetryDispatcher = dispatcher(10, 10);
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_MESSAGE_RECEIVED, () -> {
+            throw new AssertionError("Properties should not be built for an event that is sampled out");
+        });
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+        telemetryDispatcher.flush();
+
+        verify(telemetryClient).trackEvent(eq("PiCHearingReceived"), anyMap(), anyMap());
+        assertThat(meterRegistry.get(TelemetryDispatcher.SAMPLED_OUT_COUNTER).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenSendFails_whenFlushed_thenCarryOnWithTheRest() {
+        telemetryDispatcher = dispatcher(10, 10);
+        doThrow(new IllegalStateException("unavailable")).when(telemetryClient).trackEvent("PiCCourtListReceived");
+
+        telemetryDispatcher.track(TelemetryEventType.COURT_LIST_RECEIVED);
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+        telemetryDispatcher.flush();
+
+        verify(telemetryClient).trackEvent(eq("PiCHearingReceived"), anyMap(), anyMap());
+    }
+
+    @Test
+    void givenZeroCapacity_whenEventTracked_thenSendOnTheCallingThread() {
+        telemetryDispatcher = dispatcher(0, 10);
+
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, () -> Map.of("caseId", "1234"));
+
+        verify(telemetryClient).trackEvent("PiCHearingReceived", Map.of("caseId", "1234"), Collections.emptyMap());
+        assertThat(telemetryDispatcher.getBuffered()).isZero();
+    }
+
+    @Test
+    void whenShutdown_thenSendWhatIsBuffered() throws InterruptedException {
+        telemetryDispatcher = dispatcher(10, 10);
+        telemetryDispatcher.track(TelemetryEventType.HEARING_RECEIVED, Map::of);
+
+        telemetryDispatcher.shutdown();
+
+        verify(telemetryClient).trackEvent(anyString(), anyMap(), anyMap());
+    }
+
+    private TelemetryDispatcher dispatcher(int capacity, int batchSize) {
+        return new TelemetryDispatcher(telemetryClient, telemetrySampling, meterRegistry, capacity, batchSize, FLUSH_INTERVAL);
+    }
+}
@@ -1,15 +1,17 @@
 package uk.gov.justice.probation.courtcasematcher.service;
 
 import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.justice.probation.courtcasematcher.application.TelemetrySampling;
 import uk.gov.justice.probation.courtcasematcher.model.domain.DataSource;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Defendant;
 import uk.gov.justice.probation.courtcasematcher.model.domain.Hearing;
@@ -20,6 +22,7 @@ import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.OffenderSearchMatchType;
 import uk.gov.justice.probation.courtcasematcher.restclient.model.offendersearch.OtherIds;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -87,7 +90,6 @@ class TelemetryServiceTest {
     @Mock
     private TelemetryClient telemetryClient;
 
-    @InjectMocks
     private TelemetryService telemetryService;
 
     @BeforeAll
@@ -115,6 +117,13 @@ class TelemetryServiceTest {
                 .build();
     }
 
+    @BeforeEach
+    void setUp() {
+        // A buffer capacity of zero sends events on the calling thread
+        telemetryService = new TelemetryService(new TelemetryDispatcher(telemetryClient, new TelemetrySampling(),
+                new SimpleMeterRegistry(), 0, 1, Duration.ofSeconds(1)));
+    }
+
     @DisplayName("Simple record of event with no properties")
     @Test
     void whenEvent_thenRecord() {
@@ -13,7 +13,11 @@ public class WiremockMockServer extends WireMockServer {
     }
 
     public WiremockMockServer(final int port, final String fileDirectory) {
-        super(WireMockConfiguration.wireMockConfig().notifier(new ConsoleNotifier(true)).port(port)
+        this(port, fileDirectory, true);
+    }
+
+    public WiremockMockServer(final int port, final String fileDirectory, final boolean verbose) {
+        super(WireMockConfiguration.wireMockConfig().notifier(new ConsoleNotifier(verbose)).port(port)
             .usingFilesUnderClasspath(fileDirectory)
             .jettyStopTimeout(10000L));
     }